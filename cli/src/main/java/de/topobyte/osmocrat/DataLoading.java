@@ -0,0 +1,54 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.topobyte.osm4j.core.access.OsmIterator;
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osm4j.core.dataset.ListDataSetLoader;
+import de.topobyte.osm4j.utils.FileFormat;
+import de.topobyte.osm4j.utils.OsmIoUtils;
+
+class DataLoading
+{
+
+	final static Logger logger = LoggerFactory.getLogger(DataLoading.class);
+
+	static InMemoryListDataSet load(Path path) throws IOException
+	{
+		logger.info("Loading data from file: " + path);
+		try (InputStream input = Files.newInputStream(path)) {
+			OsmIterator iterator = OsmIoUtils.setupOsmIterator(input,
+					FileFormat.TBO, true);
+			InMemoryListDataSet data = ListDataSetLoader.read(iterator, true,
+					true, true);
+			logger.info(String.format("Loaded %d nodes, %d ways, %d relations",
+					data.getNodes().size(), data.getWays().size(),
+					data.getRelations().size()));
+			return data;
+		}
+	}
+
+}
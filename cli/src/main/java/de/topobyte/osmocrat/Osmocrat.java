@@ -38,6 +38,10 @@ public class Osmocrat
 					OsmocratGui.class);
 			options.addCommand("overpass", OsmocratOverpass.OPTIONS_FACTORY,
 					OsmocratOverpass.class);
+			options.addCommand("render", OsmocratRender.OPTIONS_FACTORY,
+					OsmocratRender.class);
+			options.addCommand("serve", OsmocratServe.OPTIONS_FACTORY,
+					OsmocratServe.class);
 			return options;
 		}
 
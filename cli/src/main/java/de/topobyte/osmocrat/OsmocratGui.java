@@ -30,6 +30,8 @@ import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
 import de.topobyte.osm4j.core.dataset.ListDataSetLoader;
 import de.topobyte.osm4j.utils.FileFormat;
 import de.topobyte.osm4j.utils.OsmIoUtils;
+import de.topobyte.osmocrat.rendering.NodeCoordinateStore;
+import de.topobyte.osmocrat.rendering.WayEnvelopes;
 import de.topobyte.shared.preferences.SharedPreferences;
 import de.topobyte.swing.util.SwingUtils;
 import de.topobyte.utilities.apache.commons.cli.OptionHelper;
@@ -77,7 +79,15 @@ public class OsmocratGui
 						data.getNodes().size(), data.getWays().size(),
 						data.getRelations().size()));
 
-		OsmocratMainUI mainUI = new OsmocratMainUI(data);
+		// Coordinate lookup used for building way geometries and way boxes
+		// used to skip entities outside of rendered regions, shared by all
+		// maps rendered from the data
+		NodeCoordinateStore nodeCoordinates = new NodeCoordinateStore(data);
+		WayEnvelopes wayEnvelopes = new WayEnvelopes(data.getWays(),
+				nodeCoordinates);
+
+		OsmocratMainUI mainUI = new OsmocratMainUI(data, nodeCoordinates,
+				wayEnvelopes);
 		mainUI.show();
 	}
 
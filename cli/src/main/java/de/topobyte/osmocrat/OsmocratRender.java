@@ -0,0 +1,419 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat;
+
+import static de.topobyte.inkscape4j.Styles.color;
+import static de.topobyte.inkscape4j.Styles.style;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.topobyte.adt.geo.BBox;
+import de.topobyte.adt.geo.BBoxString;
+import de.topobyte.inkscape4j.Layer;
+import de.topobyte.inkscape4j.SvgFile;
+import de.topobyte.inkscape4j.SvgFileWriting;
+import de.topobyte.inkscape4j.shape.Rect;
+import de.topobyte.mercator.image.MercatorImage;
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osmocrat.rendering.ConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.GraphicsConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.IndexedRenderingData;
+import de.topobyte.osmocrat.rendering.InkscapeConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.NodeCoordinateStore;
+import de.topobyte.osmocrat.rendering.RenderingDataCache;
+import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+import de.topobyte.osmocrat.rendering.config.Rendering;
+import de.topobyte.osmocrat.rendering.tiles.DirectoryTileOutput;
+import de.topobyte.osmocrat.rendering.tiles.MBTilesOutput;
+import de.topobyte.osmocrat.rendering.tiles.TileOutput;
+import de.topobyte.osmocrat.rendering.tiles.TileRenderer;
+import de.topobyte.utilities.apache.commons.cli.CliTool;
+import de.topobyte.utilities.apache.commons.cli.OptionHelper;
+import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
+import de.topobyte.utilities.apache.commons.cli.commands.options.CommonsCliExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFactory;
+
+/**
+ * Renders a batch of maps from one data file without any user interface.
+ *
+ * Jobs are read from a manifest with one job per line. Each line consists of
+ * key=value pairs separated by whitespace, for example:
+ *
+ * <pre>
+ * output=map.png bbox=13.455,52.512,13.466,52.507 size=800x600 style=style2 scale=2
+ * </pre>
+ *
+ * The keys 'output', 'bbox', 'size' and 'style' are required. 'scale'
+ * defaults to 1 and 'format' ('png' or 'svg') defaults to the extension of
+ * the output file. Relative output paths are resolved against the directory
+ * of the manifest. Empty lines and lines starting with '#' are ignored.
+ *
+ * Jobs with format 'mbtiles' or 'tiles' render all tiles of the bounding box
+ * on a range of zoom levels into an MBTiles file or a z/x/y.png directory
+ * tree instead of a single image. They require 'zoom' instead of 'size':
+ *
+ * <pre>
+ * output=map.mbtiles bbox=13.455,52.512,13.466,52.507 zoom=14-18 style=style2
+ * </pre>
+ *
+ * Tile jobs are rendered one after another after all image jobs, each using
+ * all threads.
+ */
+public class OsmocratRender
+{
+
+	final static Logger logger = LoggerFactory.getLogger(OsmocratRender.class);
+
+	private static final String OPTION_INPUT = "input";
+	private static final String OPTION_JOBS = "jobs";
+	private static final String OPTION_THREADS = "threads";
+	private static final String OPTION_CACHE_DIR = "cache-dir";
+
+	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
+
+		@Override
+		public ExeOptions createOptions()
+		{
+			Options options = new Options();
+			// @formatter:off
+			OptionHelper.addL(options, OPTION_INPUT, true, true, "file", "an OSM data file");
+			OptionHelper.addL(options, OPTION_JOBS, true, true, "file", "a job manifest");
+			OptionHelper.addL(options, OPTION_THREADS, true, false, "number", "the number of jobs to render in parallel");
+			OptionHelper.addL(options, OPTION_CACHE_DIR, true, false, "directory", "a directory to cache rendering data in across runs");
+			// @formatter:on
+			return new CommonsCliExeOptions(options, "[options]");
+		}
+
+	};
+
+	private static class Job
+	{
+
+		private Path output;
+		private BBox bbox;
+		private int width;
+		private int height;
+		private String style;
+		private float scale = 1;
+		private String format;
+		private int minZoom;
+		private int maxZoom;
+
+		private boolean isTiles()
+		{
+			return format.equals("mbtiles") || format.equals("tiles");
+		}
+
+	}
+
+	public static void main(String name, CommonsCliArguments arguments)
+			throws IOException
+	{
+		System.setProperty("java.awt.headless", "true");
+
+		CommandLine line = arguments.getLine();
+		CliTool tool = new CliTool(name, arguments.getOptions());
+
+		Path pathInput = Paths.get(line.getOptionValue(OPTION_INPUT));
+		Path pathJobs = Paths.get(line.getOptionValue(OPTION_JOBS));
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (line.hasOption(OPTION_THREADS)) {
+			threads = Integer.parseInt(line.getOptionValue(OPTION_THREADS));
+		}
+		RenderingDataCache cache = null;
+		if (line.hasOption(OPTION_CACHE_DIR)) {
+			cache = new RenderingDataCache(
+					Paths.get(line.getOptionValue(OPTION_CACHE_DIR)));
+		}
+
+		List<Job> jobs = null;
+		try {
+			jobs = parse(pathJobs);
+		} catch (IllegalArgumentException e) {
+			tool.printMessageAndExit(e.getMessage());
+		}
+
+		InMemoryListDataSet data = DataLoading.load(pathInput);
+		NodeCoordinateStore nodes = new NodeCoordinateStore(data);
+
+		// Build the geometry once per style and share it among all jobs
+		Map<String, IndexedRenderingData> renderingData = new HashMap<>();
+		Map<String, RenderInstructions> styles = new HashMap<>();
+		for (Job job : jobs) {
+			if (styles.containsKey(job.style)) {
+				continue;
+			}
+			RenderInstructions instructions = Rendering.getStyle(job.style);
+			styles.put(job.style, instructions);
+			if (cache == null) {
+				renderingData.put(job.style,
+						ConfigMapRenderer.buildIndexedRenderingData(data,
+								nodes, instructions, threads, true));
+			} else {
+				renderingData.put(job.style,
+						ConfigMapRenderer.buildIndexedRenderingData(cache,
+								pathInput, data, nodes, instructions,
+								threads, true));
+			}
+		}
+
+		List<Job> imageJobs = new ArrayList<>();
+		List<Job> tileJobs = new ArrayList<>();
+		for (Job job : jobs) {
+			if (job.isTiles()) {
+				tileJobs.add(job);
+			} else {
+				imageJobs.add(job);
+			}
+		}
+
+		logger.info(String.format("Rendering %d jobs on %d threads",
+				imageJobs.size(), threads));
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (Job job : imageJobs) {
+			tasks.add(() -> {
+				render(job, styles.get(job.style),
+						renderingData.get(job.style));
+				return null;
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Error while rendering", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+
+		for (Job job : tileJobs) {
+			renderTiles(job, styles.get(job.style),
+					renderingData.get(job.style), threads);
+		}
+		logger.info("done");
+	}
+
+	private static List<Job> parse(Path path) throws IOException
+	{
+		Path directory = path.toAbsolutePath().getParent();
+		List<Job> jobs = new ArrayList<>();
+		List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			try {
+				jobs.add(parse(directory, line));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(String.format(
+						"Invalid job on line %d: %s", i + 1, e.getMessage()));
+			}
+		}
+		return jobs;
+	}
+
+	private static Job parse(Path directory, String line)
+	{
+		Map<String, String> values = new HashMap<>();
+		for (String part : line.split("\\s+")) {
+			int index = part.indexOf('=');
+			if (index < 0) {
+				throw new IllegalArgumentException(
+						"expected key=value: " + part);
+			}
+			values.put(part.substring(0, index), part.substring(index + 1));
+		}
+
+		Job job = new Job();
+		job.output = directory.resolve(required(values, "output"));
+		job.bbox = BBoxString.parse(required(values, "bbox")).toBbox();
+
+		job.format = values.get("format");
+		if (job.format == null) {
+			String file = job.output.getFileName().toString();
+			job.format = file.substring(file.lastIndexOf('.') + 1);
+		}
+		job.format = job.format.toLowerCase();
+		if (!job.format.equals("png") && !job.format.equals("svg")
+				&& !job.isTiles()) {
+			throw new IllegalArgumentException(
+					"unsupported format: " + job.format);
+		}
+
+		if (job.isTiles()) {
+			String zoom = required(values, "zoom");
+			String[] parts = zoom.split("-");
+			if (parts.length > 2) {
+				throw new IllegalArgumentException("invalid zoom: " + zoom);
+			}
+			job.minZoom = Integer.parseInt(parts[0]);
+			job.maxZoom = Integer.parseInt(parts[parts.length - 1]);
+			if (job.minZoom > job.maxZoom) {
+				throw new IllegalArgumentException("invalid zoom: " + zoom);
+			}
+		} else {
+			String size = required(values, "size");
+			String[] parts = size.split("x");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("invalid size: " + size);
+			}
+			job.width = Integer.parseInt(parts[0]);
+			job.height = Integer.parseInt(parts[1]);
+		}
+
+		job.style = required(values, "style");
+		if (Rendering.getStyle(job.style) == null) {
+			throw new IllegalArgumentException(
+					"unknown style: " + job.style + ", available: "
+							+ Rendering.getStyleNames());
+		}
+
+		if (values.containsKey("scale")) {
+			job.scale = Float.parseFloat(values.get("scale"));
+		}
+		return job;
+	}
+
+	private static String required(Map<String, String> values, String key)
+	{
+		String value = values.get(key);
+		if (value == null) {
+			throw new IllegalArgumentException("missing " + key);
+		}
+		return value;
+	}
+
+	private static void renderTiles(Job job, RenderInstructions instructions,
+			IndexedRenderingData renderingData, int threads)
+			throws IOException
+	{
+		logger.info(String.format("Rendering tiles for zoom levels %d-%d to %s",
+				job.minZoom, job.maxZoom, job.output));
+		TileRenderer renderer = new TileRenderer(renderingData, instructions);
+		renderer.setThreads(threads);
+		renderer.setScaleLines(job.scale);
+		renderer.setScaleText(job.scale);
+
+		try (TileOutput output = createTileOutput(job)) {
+			renderer.render(job.bbox, job.minZoom, job.maxZoom, output);
+		}
+	}
+
+	private static TileOutput createTileOutput(Job job) throws IOException
+	{
+		if (!job.format.equals("mbtiles")) {
+			return new DirectoryTileOutput(job.output);
+		}
+		MBTilesOutput output = new MBTilesOutput(job.output);
+		BBox bbox = job.bbox;
+		output.setMetadata("bounds", String.format(Locale.US, "%f,%f,%f,%f",
+				Math.min(bbox.getLon1(), bbox.getLon2()),
+				Math.min(bbox.getLat1(), bbox.getLat2()),
+				Math.max(bbox.getLon1(), bbox.getLon2()),
+				Math.max(bbox.getLat1(), bbox.getLat2())));
+		output.setMetadata("minzoom", Integer.toString(job.minZoom));
+		output.setMetadata("maxzoom", Integer.toString(job.maxZoom));
+		return output;
+	}
+
+	private static void render(Job job, RenderInstructions instructions,
+			IndexedRenderingData renderingData) throws IOException
+	{
+		logger.info("Rendering " + job.output);
+		MercatorImage mercatorImage = new MercatorImage(job.bbox, job.width,
+				job.height);
+
+		if (job.format.equals("png")) {
+			GraphicsConfigMapRenderer renderer = ConfigMapRenderer
+					.setupGraphicsRenderer(job.bbox, mercatorImage,
+							renderingData, instructions);
+			renderer.setDrawBoundingBox(false);
+			renderer.setScaleLines(job.scale);
+			renderer.setScaleText(job.scale);
+
+			BufferedImage image = new BufferedImage(job.width, job.height,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D graphics = image.createGraphics();
+			graphics.setColor(new Color(0xEEEEEE));
+			graphics.fillRect(0, 0, job.width, job.height);
+			renderer.paint(graphics);
+			graphics.dispose();
+
+			ImageIO.write(image, "png", job.output.toFile());
+		} else {
+			InkscapeConfigMapRenderer renderer = ConfigMapRenderer
+					.setupInkscapeRenderer(job.bbox, mercatorImage,
+							renderingData, instructions);
+			renderer.setDrawBoundingBox(false);
+			renderer.setScaleLines(job.scale);
+			renderer.setScaleText(job.scale);
+
+			SvgFile svg = new SvgFile();
+			svg.setWidth(String.format("%dpx", job.width));
+			svg.setHeight(String.format("%dpx", job.height));
+
+			Layer layerBackground = new Layer("background");
+			svg.getLayers().add(layerBackground);
+			layerBackground.setLabel("Background");
+
+			Rect rect = new Rect("rect1", 0, 0, job.width, job.height);
+			rect.setStyle(style(color(0xEEEEEE), null, 1, 1, 1, 0));
+			layerBackground.getObjects().add(rect);
+
+			renderer.paint(svg);
+
+			try (OutputStream os = Files.newOutputStream(job.output)) {
+				SvgFileWriting.write(svg, os);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,295 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osmocrat.rendering.ConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.IndexedRenderingData;
+import de.topobyte.osmocrat.rendering.NodeCoordinateStore;
+import de.topobyte.osmocrat.rendering.RenderingDataCache;
+import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+import de.topobyte.osmocrat.rendering.config.Rendering;
+import de.topobyte.osmocrat.rendering.tiles.TileCache;
+import de.topobyte.osmocrat.rendering.tiles.TileOutput;
+import de.topobyte.osmocrat.rendering.tiles.TileRenderer;
+import de.topobyte.osmocrat.rendering.tiles.Tiles;
+import de.topobyte.utilities.apache.commons.cli.OptionHelper;
+import de.topobyte.utilities.apache.commons.cli.commands.args.CommonsCliArguments;
+import de.topobyte.utilities.apache.commons.cli.commands.options.CommonsCliExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptions;
+import de.topobyte.utilities.apache.commons.cli.commands.options.ExeOptionsFactory;
+
+public class OsmocratServe
+{
+
+	final static Logger logger = LoggerFactory.getLogger(OsmocratServe.class);
+
+	private static final String OPTION_INPUT = "input";
+	private static final String OPTION_PORT = "port";
+	private static final String OPTION_THREADS = "threads";
+	private static final String OPTION_CACHE = "cache";
+	private static final String OPTION_META_TILES = "meta-tiles";
+	private static final String OPTION_CACHE_DIR = "cache-dir";
+
+	public static ExeOptionsFactory OPTIONS_FACTORY = new ExeOptionsFactory() {
+
+		@Override
+		public ExeOptions createOptions()
+		{
+			Options options = new Options();
+			// @formatter:off
+			OptionHelper.addL(options, OPTION_INPUT, true, true, "file", "an OSM data file");
+			OptionHelper.addL(options, OPTION_PORT, true, false, "port", "the port to listen on (default: 8080)");
+			OptionHelper.addL(options, OPTION_THREADS, true, false, "number", "the number of threads serving requests");
+			OptionHelper.addL(options, OPTION_CACHE, true, false, "megabytes", "the size of the tile cache (default: 256)");
+			OptionHelper.addL(options, OPTION_META_TILES, true, false, "number", "the number of tiles per side of a meta tile (default: 8)");
+			OptionHelper.addL(options, OPTION_CACHE_DIR, true, false, "directory", "a directory to cache rendering data in across runs");
+			// @formatter:on
+			return new CommonsCliExeOptions(options, "[options]");
+		}
+
+	};
+
+	// /{style}/{z}/{x}/{y}.png
+	private static final Pattern PATTERN_TILE = Pattern
+			.compile("^/([^/]+)/(\\d+)/(\\d+)/(\\d+)\\.png$");
+
+	private static final int MAX_ZOOM = 22;
+
+	private static Path pathInput;
+	private static InMemoryListDataSet data;
+	private static NodeCoordinateStore nodes;
+	private static int threads;
+	private static int metaTileSize;
+	private static RenderingDataCache dataCache;
+
+	// Tile renderers per style, created on first request
+	private static ConcurrentMap<String, FutureTask<TileRenderer>> renderers = new ConcurrentHashMap<>();
+	private static TileCache cache;
+
+	public static void main(String name, CommonsCliArguments arguments)
+			throws IOException
+	{
+		CommandLine line = arguments.getLine();
+
+		pathInput = Paths.get(line.getOptionValue(OPTION_INPUT));
+		int port = 8080;
+		if (line.hasOption(OPTION_PORT)) {
+			port = Integer.parseInt(line.getOptionValue(OPTION_PORT));
+		}
+		threads = Runtime.getRuntime().availableProcessors();
+		if (line.hasOption(OPTION_THREADS)) {
+			threads = Integer.parseInt(line.getOptionValue(OPTION_THREADS));
+		}
+		metaTileSize = 8;
+		if (line.hasOption(OPTION_META_TILES)) {
+			metaTileSize = Integer
+					.parseInt(line.getOptionValue(OPTION_META_TILES));
+		}
+		if (line.hasOption(OPTION_CACHE_DIR)) {
+			dataCache = new RenderingDataCache(
+					Paths.get(line.getOptionValue(OPTION_CACHE_DIR)));
+		}
+		long cacheSize = 256;
+		if (line.hasOption(OPTION_CACHE)) {
+			cacheSize = Long.parseLong(line.getOptionValue(OPTION_CACHE));
+		}
+
+		data = DataLoading.load(pathInput);
+		nodes = new NodeCoordinateStore(data);
+		cache = new TileCache(cacheSize * 1024 * 1024);
+
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/", OsmocratServe::handle);
+		server.setExecutor(Executors.newFixedThreadPool(threads));
+		server.start();
+
+		logger.info(String.format(
+				"Serving tiles at http://localhost:%d/{style}/{z}/{x}/{y}.png",
+				port));
+		logger.info("Available styles: " + Rendering.getStyleNames());
+	}
+
+	private static void handle(HttpExchange exchange) throws IOException
+	{
+		try {
+			String path = exchange.getRequestURI().getPath();
+			Matcher matcher = PATTERN_TILE.matcher(path);
+			if (!matcher.matches()) {
+				respond(exchange, 404, "Not found");
+				return;
+			}
+
+			String style = matcher.group(1);
+			int zoom = Integer.parseInt(matcher.group(2));
+			int x = Integer.parseInt(matcher.group(3));
+			int y = Integer.parseInt(matcher.group(4));
+			if (zoom > MAX_ZOOM || x >= Tiles.numTiles(zoom)
+					|| y >= Tiles.numTiles(zoom)) {
+				respond(exchange, 404, "No such tile");
+				return;
+			}
+
+			TileRenderer renderer = getRenderer(style);
+			if (renderer == null) {
+				respond(exchange, 404, "No such style: " + style);
+				return;
+			}
+
+			// Render the whole meta tile containing the requested tile and
+			// cache all of its tiles, as neighboring tiles are likely to be
+			// requested next
+			String key = key(style, zoom, x, y);
+			String metaKey = "meta/" + style + "/" + zoom + "/"
+					+ x / metaTileSize + "/" + y / metaTileSize;
+			byte[] tile = cache.get(key, metaKey, () -> {
+				MetaTileOutput output = new MetaTileOutput(style);
+				renderer.renderMetaTile(zoom, x, y, output);
+				return output.tiles;
+			});
+
+			exchange.getResponseHeaders().set("Content-Type", "image/png");
+			exchange.sendResponseHeaders(200, tile.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(tile);
+			}
+		} catch (IOException | RuntimeException e) {
+			logger.error("Error while serving " + exchange.getRequestURI(),
+					e);
+			respond(exchange, 500, "Internal error");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static TileRenderer getRenderer(String style) throws IOException
+	{
+		if (!Rendering.getStyleNames().contains(style)) {
+			return null;
+		}
+
+		// The first request for a style builds its rendering data, concurrent
+		// requests for the same style wait for it
+		FutureTask<TileRenderer> task = renderers.computeIfAbsent(style,
+				s -> new FutureTask<>(() -> createRenderer(s)));
+		task.run();
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while setting up style", e);
+		} catch (ExecutionException e) {
+			// Forget the failed task so that the next request tries again
+			renderers.remove(style, task);
+			throw new IOException("Error while setting up style",
+					e.getCause());
+		}
+	}
+
+	private static TileRenderer createRenderer(String style) throws IOException
+	{
+		logger.info("Building rendering data for style: " + style);
+		RenderInstructions instructions = Rendering.getStyle(style);
+		IndexedRenderingData renderingData;
+		if (dataCache == null) {
+			renderingData = ConfigMapRenderer.buildIndexedRenderingData(data,
+					nodes, instructions, threads, true);
+		} else {
+			renderingData = ConfigMapRenderer.buildIndexedRenderingData(
+					dataCache, pathInput, data, nodes, instructions, threads,
+					true);
+		}
+		TileRenderer renderer = new TileRenderer(renderingData, instructions);
+		renderer.setMetaTileSize(metaTileSize);
+		return renderer;
+	}
+
+	private static String key(String style, int zoom, int x, int y)
+	{
+		return style + "/" + zoom + "/" + x + "/" + y;
+	}
+
+	/*
+	 * Collects the tiles of a meta tile by their cache keys
+	 */
+	private static class MetaTileOutput implements TileOutput
+	{
+
+		private String style;
+		private Map<String, byte[]> tiles = new HashMap<>();
+
+		MetaTileOutput(String style)
+		{
+			this.style = style;
+		}
+
+		@Override
+		public synchronized void write(int zoom, int x, int y, byte[] data)
+		{
+			tiles.put(key(style, zoom, x, y), data);
+		}
+
+		@Override
+		public void close()
+		{
+			// nothing to close
+		}
+
+	}
+
+	private static void respond(HttpExchange exchange, int code,
+			String message)
+	{
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		try {
+			exchange.getResponseHeaders().set("Content-Type",
+					"text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(code, bytes.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(bytes);
+			}
+		} catch (IOException e) {
+			// response already started or client gone
+		}
+	}
+
+}
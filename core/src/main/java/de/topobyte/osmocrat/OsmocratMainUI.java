@@ -62,6 +62,8 @@ import de.topobyte.osmocrat.list.EntityModel;
 import de.topobyte.osmocrat.list.NodeCellRenderer;
 import de.topobyte.osmocrat.list.RelationCellRenderer;
 import de.topobyte.osmocrat.list.WayCellRenderer;
+import de.topobyte.osmocrat.rendering.NodeCoordinateStore;
+import de.topobyte.osmocrat.rendering.WayEnvelopes;
 
 public class OsmocratMainUI
 {
@@ -69,6 +71,8 @@ public class OsmocratMainUI
 	private JFrame frame;
 
 	private InMemoryListDataSet data;
+	private NodeCoordinateStore nodeCoordinates;
+	private WayEnvelopes wayEnvelopes;
 
 	private JList<OsmNode> listNodes;
 	private JList<OsmWay> listWays;
@@ -79,8 +83,23 @@ public class OsmocratMainUI
 	private BBox bbox80percent = null;
 
 	public OsmocratMainUI(InMemoryListDataSet data)
+	{
+		this(data, new NodeCoordinateStore(data));
+	}
+
+	public OsmocratMainUI(InMemoryListDataSet data,
+			NodeCoordinateStore nodeCoordinates)
+	{
+		this(data, nodeCoordinates,
+				new WayEnvelopes(data.getWays(), nodeCoordinates));
+	}
+
+	public OsmocratMainUI(InMemoryListDataSet data,
+			NodeCoordinateStore nodeCoordinates, WayEnvelopes wayEnvelopes)
 	{
 		this.data = data;
+		this.nodeCoordinates = nodeCoordinates;
+		this.wayEnvelopes = wayEnvelopes;
 	}
 
 	public InMemoryListDataSet getData()
@@ -88,6 +107,16 @@ public class OsmocratMainUI
 		return data;
 	}
 
+	public NodeCoordinateStore getNodeCoordinates()
+	{
+		return nodeCoordinates;
+	}
+
+	public WayEnvelopes getWayEnvelopes()
+	{
+		return wayEnvelopes;
+	}
+
 	public void show()
 	{
 		frame = new JFrame("Osmocrat");
@@ -57,7 +57,8 @@ public class RenderMapAction extends OsmocratAction
 		JFrame frame = new JFrame("Render Map...");
 
 		RenderSetupPanel panel = new RenderSetupPanel(bbox, width, height,
-				osmocrat.getData());
+				osmocrat.getData(), osmocrat.getNodeCoordinates(),
+				osmocrat.getWayEnvelopes());
 
 		frame.setContentPane(panel);
 		frame.pack();
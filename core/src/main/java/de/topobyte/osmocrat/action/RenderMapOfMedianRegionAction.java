@@ -59,7 +59,8 @@ public class RenderMapOfMedianRegionAction extends OsmocratAction
 
 		MercatorImage mapImage = new MercatorImage(bbox, width, height);
 
-		MapRenderer panel = new MapRenderer(bbox, mapImage, osmocrat.getData());
+		MapRenderer panel = new MapRenderer(bbox, mapImage, osmocrat.getData(),
+				osmocrat.getNodeCoordinates(), osmocrat.getWayEnvelopes());
 
 		panel.setPreferredSize(new Dimension(width, height));
 
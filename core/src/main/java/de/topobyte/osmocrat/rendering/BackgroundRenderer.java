@@ -0,0 +1,186 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+/**
+ * Renders the images displayed by a component on a background thread, so
+ * that the event dispatch thread stays responsive while maps are rendered.
+ *
+ * Each request is rendered in two passes: a quick, low quality preview and
+ * then the full quality image. Each image replaces the displayed one as soon
+ * as it is done. A new request cancels the request in progress by
+ * interrupting its worker thread and dropping its results, so painters should
+ * check the interrupted state of the current thread regularly.
+ *
+ * Except for the painter callbacks, all methods must be called on the event
+ * dispatch thread.
+ */
+public class BackgroundRenderer
+{
+
+	public interface Painter
+	{
+
+		/**
+		 * Paint a complete image. Called on the worker thread.
+		 *
+		 * @param image
+		 *            the image to paint onto.
+		 * @param preview
+		 *            whether to paint a quick preview or the full quality
+		 *            image.
+		 */
+		void paint(BufferedImage image, boolean preview);
+
+	}
+
+	private JComponent component;
+	private Color background;
+
+	private ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "background-renderer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Future<?> task = null;
+	private int generation = 0;
+
+	// The image currently displayed and how far it has been moved since
+	private BufferedImage image = null;
+	private int offsetX = 0;
+	private int offsetY = 0;
+
+	public BackgroundRenderer(JComponent component, Color background)
+	{
+		this.component = component;
+		this.background = background;
+	}
+
+	/**
+	 * Render a new image of the specified size, cancelling the current
+	 * request, if any.
+	 *
+	 * @param prepare
+	 *            run on the worker thread before the first pass, may be null.
+	 *            This is where state shared with the painter should be
+	 *            modified, so that it is not modified while painting.
+	 */
+	public void render(int width, int height, Runnable prepare,
+			Painter painter)
+	{
+		cancel();
+		int current = ++generation;
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+		task = executor.submit(() -> {
+			if (prepare != null) {
+				prepare.run();
+			}
+			for (boolean preview : new boolean[] { true, false }) {
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				BufferedImage result = new BufferedImage(width, height,
+						BufferedImage.TYPE_INT_RGB);
+				painter.paint(result, preview);
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				SwingUtilities.invokeLater(() -> show(current, result));
+			}
+		});
+	}
+
+	public void render(int width, int height, Painter painter)
+	{
+		render(width, height, null, painter);
+	}
+
+	/**
+	 * Cancel the current request, if any.
+	 */
+	public void cancel()
+	{
+		if (task != null) {
+			task.cancel(true);
+			task = null;
+		}
+	}
+
+	/**
+	 * Stop the worker thread. The renderer cannot be used any more afterwards.
+	 */
+	public void shutdown()
+	{
+		cancel();
+		executor.shutdownNow();
+	}
+
+	private void show(int requested, BufferedImage result)
+	{
+		if (requested != generation) {
+			return;
+		}
+		image = result;
+		offsetX = 0;
+		offsetY = 0;
+		component.repaint();
+	}
+
+	/**
+	 * Move the displayed image by the specified offset until the next image
+	 * arrives, so that the display follows panning immediately.
+	 */
+	public void shift(int dx, int dy)
+	{
+		offsetX += dx;
+		offsetY += dy;
+		component.repaint();
+	}
+
+	public BufferedImage getImage()
+	{
+		return image;
+	}
+
+	/**
+	 * Paint the displayed image, filling uncovered parts with the background
+	 * color.
+	 */
+	public void paint(Graphics g, int width, int height)
+	{
+		g.setColor(background);
+		g.fillRect(0, 0, width, height);
+		if (image != null) {
+			g.drawImage(image, offsetX, offsetY, null);
+		}
+	}
+
+}
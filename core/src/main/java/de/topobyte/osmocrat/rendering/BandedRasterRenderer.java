@@ -0,0 +1,123 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.topobyte.osmocrat.rendering.config.instructions.Instruction;
+
+/**
+ * Renders large images with a {@link GraphicsConfigMapRenderer} on several
+ * threads by splitting the image into horizontal bands.
+ *
+ * Each band is painted with its own graphics, translated and clipped to the
+ * band, into a sub-image sharing the target image's pixels. Labels are placed
+ * once for the whole image before the bands are painted, so that labels
+ * crossing band seams are drawn consistently in both bands.
+ */
+public class BandedRasterRenderer
+{
+
+	final static Logger logger = LoggerFactory
+			.getLogger(BandedRasterRenderer.class);
+
+	private GraphicsConfigMapRenderer renderer;
+	private int threads;
+	private int bandHeight = 256;
+
+	public BandedRasterRenderer(GraphicsConfigMapRenderer renderer,
+			int threads)
+	{
+		this.renderer = renderer;
+		this.threads = threads;
+	}
+
+	public int getBandHeight()
+	{
+		return bandHeight;
+	}
+
+	public void setBandHeight(int bandHeight)
+	{
+		this.bandHeight = bandHeight;
+	}
+
+	/**
+	 * Paint the map onto the specified image. The image must have the size
+	 * of the renderer's mercator image. Existing content, such as a
+	 * background, is painted over.
+	 */
+	public void paint(BufferedImage image)
+	{
+		int width = image.getWidth();
+		int height = image.getHeight();
+
+		logger.info("placing labels...");
+		Map<Instruction, List<PlacedLabel>> labels = renderer.placeLabels();
+		// Convert shapes up front, so that bands don't wait for each other
+		renderer.prepareShapes();
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for (int y = 0; y < height; y += bandHeight) {
+			int top = y;
+			int h = Math.min(bandHeight, height - y);
+			tasks.add(() -> {
+				BufferedImage band = image.getSubimage(0, top, width, h);
+				Graphics2D g = band.createGraphics();
+				try {
+					g.translate(0, -top);
+					g.clipRect(0, top, width, h);
+					renderer.paint(g, labels);
+				} finally {
+					g.dispose();
+				}
+				return null;
+			});
+		}
+
+		logger.info(String.format("painting %d bands on %d threads...",
+				tasks.size(), threads));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while painting", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error while painting", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		logger.info("done");
+	}
+
+}
@@ -20,9 +20,17 @@ package de.topobyte.osmocrat.rendering;
 import de.topobyte.adt.geo.BBox;
 import de.topobyte.chromaticity.ColorCode;
 import de.topobyte.chromaticity.WebColors;
+import de.topobyte.jgs.transform.CoordinateTransformer;
 import de.topobyte.mercator.image.MercatorImage;
 import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+import de.topobyte.osmocrat.rendering.config.instructions.Instruction;
+import de.topobyte.osmocrat.rendering.config.instructions.WayInstruction;
+import de.topobyte.osmocrat.rendering.config.instructions.ways.TextWayStyle;
 import de.topobyte.osmocrat.text.TextIntersectionChecker;
+import de.topobyte.osmocrat.text.TextIntersectionCheckerGrid;
+import de.topobyte.osmocrat.text.TextIntersectionCheckerTree;
+import de.topobyte.osmocrat.text.TextIntersectionCheckerType;
+import de.topobyte.osmocrat.text.awt.TextMeasurementCache;
 
 public class BaseConfigMapRenderer
 {
@@ -33,6 +41,10 @@ public class BaseConfigMapRenderer
 	// This will be used to map geometry coordinates to screen coordinates
 	protected MercatorImage mercatorImage;
 
+	// This maps the coordinates of the rendering data to screen coordinates,
+	// which is the mercator image itself unless the data is projected already
+	protected CoordinateTransformer transformer;
+
 	protected BBox bbox;
 
 	protected boolean drawBoundingBox = true;
@@ -43,6 +55,13 @@ public class BaseConfigMapRenderer
 	protected RenderingDataSource renderingData;
 
 	protected TextIntersectionChecker textIntersectionChecker;
+	protected TextIntersectionCheckerType textIntersectionCheckerType = //
+			TextIntersectionCheckerType.TREE;
+
+	protected TextMeasurementCache textMeasurementCache = TextMeasurementCache
+			.getShared();
+
+	protected int labelPositions = 3;
 
 	protected float scaleLines = 1;
 	protected float scaleText = 1;
@@ -54,6 +73,16 @@ public class BaseConfigMapRenderer
 		this.mercatorImage = mercatorImage;
 		this.instructions = instructions;
 		this.renderingData = renderingData;
+		updateTransformer();
+	}
+
+	private void updateTransformer()
+	{
+		if (renderingData.isProjected()) {
+			transformer = new ProjectedImageTransformer(mercatorImage);
+		} else {
+			transformer = mercatorImage;
+		}
 	}
 
 	public boolean isDrawBoundingBox()
@@ -96,9 +125,130 @@ public class BaseConfigMapRenderer
 		this.scaleText = scaleText;
 	}
 
+	public TextIntersectionCheckerType getTextIntersectionCheckerType()
+	{
+		return textIntersectionCheckerType;
+	}
+
+	public void setTextIntersectionCheckerType(
+			TextIntersectionCheckerType textIntersectionCheckerType)
+	{
+		this.textIntersectionCheckerType = textIntersectionCheckerType;
+	}
+
+	public int getLabelPositions()
+	{
+		return labelPositions;
+	}
+
+	/**
+	 * Set the number of positions along a way to try for its label.
+	 */
+	public void setLabelPositions(int labelPositions)
+	{
+		this.labelPositions = labelPositions;
+	}
+
+	/**
+	 * Create a placer for the labels of the current image.
+	 *
+	 * @param padding
+	 *            the space to keep free before and after the text of each
+	 *            label.
+	 */
+	protected LabelPlacer createLabelPlacer(double padding)
+	{
+		LabelPlacer placer = new LabelPlacer(transformer, renderingData,
+				textMeasurementCache, scaleText, padding);
+		placer.setPositions(labelPositions);
+		return placer;
+	}
+
+	public TextMeasurementCache getTextMeasurementCache()
+	{
+		return textMeasurementCache;
+	}
+
+	/**
+	 * Set the cache used to measure and lay out label texts. By default, all
+	 * renderers share one cache.
+	 */
+	public void setTextMeasurementCache(
+			TextMeasurementCache textMeasurementCache)
+	{
+		this.textMeasurementCache = textMeasurementCache;
+	}
+
+	/**
+	 * Create an empty checker of the configured type for placing the labels
+	 * of the current image.
+	 */
+	protected TextIntersectionChecker createTextIntersectionChecker()
+	{
+		switch (textIntersectionCheckerType) {
+		default:
+		case TREE:
+			return new TextIntersectionCheckerTree();
+		case GRID:
+			// Cells are a few text heights wide, so that most boxes only
+			// overlap a few cells
+			return new TextIntersectionCheckerGrid(mercatorImage.getWidth(),
+					mercatorImage.getHeight(), 2 * getMaxFontSize());
+		}
+	}
+
+	private float getMaxFontSize()
+	{
+		int size = 0;
+		for (Instruction instruction : instructions.getInstructions()) {
+			if (!(instruction instanceof WayInstruction)) {
+				continue;
+			}
+			WayInstruction wi = (WayInstruction) instruction;
+			if (wi.getStyle() instanceof TextWayStyle) {
+				size = Math.max(size, ((TextWayStyle) wi.getStyle()).getSize());
+			}
+		}
+		return Math.max(1, size * scaleText);
+	}
+
+	public BBox getBoundingBox()
+	{
+		return bbox;
+	}
+
+	/**
+	 * Move the map content by the specified number of pixels, keeping the
+	 * image size and scale.
+	 */
+	public void pan(int dx, int dy)
+	{
+		ProjectedImageTransformer t = new ProjectedImageTransformer(
+				mercatorImage);
+		// Moving the content right or down moves the region left or up
+		double mx = -dx / t.getScaleX();
+		double my = -dy / t.getScaleY();
+		bbox = new BBox(shiftLon(bbox.getLon1(), mx),
+				shiftLat(bbox.getLat1(), my), shiftLon(bbox.getLon2(), mx),
+				shiftLat(bbox.getLat2(), my));
+		refreshMercatorImage(mercatorImage.getWidth(),
+				mercatorImage.getHeight());
+	}
+
+	private static double shiftLon(double lon, double meters)
+	{
+		return WebMercator.lon(WebMercator.x(lon) + meters);
+	}
+
+	private static double shiftLat(double lat, double meters)
+	{
+		return WebMercator.lat(WebMercator.y(lat) + meters);
+	}
+
 	public void refreshMercatorImage(int width, int height)
 	{
 		mercatorImage = new MercatorImage(bbox, width, height);
+		updateTransformer();
 	}
 
 }
@@ -38,6 +38,8 @@ public class CachedRenderingDataSource implements RenderingDataSource
 	protected Map<WayInstruction, List<LineString>> ways = new HashMap<>();
 	protected Map<LineString, String> names = new HashMap<>();
 
+	protected boolean projected = false;
+
 	public Map<AreaInstruction, List<Geometry>> getAreas()
 	{
 		return areas;
@@ -53,6 +55,17 @@ public class CachedRenderingDataSource implements RenderingDataSource
 		return names;
 	}
 
+	@Override
+	public boolean isProjected()
+	{
+		return projected;
+	}
+
+	public void setProjected(boolean projected)
+	{
+		this.projected = projected;
+	}
+
 	@Override
 	public List<LineString> getWays(Instruction instruction)
 	{
@@ -17,6 +17,9 @@
 
 package de.topobyte.osmocrat.rendering;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,13 +60,48 @@ public class ConfigMapRenderer
 		return renderer;
 	}
 
+	public static GraphicsConfigMapRenderer setupGraphicsRenderer(BBox bbox,
+			MercatorImage mercatorImage, IndexedRenderingData data,
+			RenderInstructions instructions)
+	{
+		return new GraphicsConfigMapRenderer(bbox, mercatorImage, instructions,
+				data.getView(mercatorImage));
+	}
+
+	public static InkscapeConfigMapRenderer setupInkscapeRenderer(BBox bbox,
+			MercatorImage mercatorImage, IndexedRenderingData data,
+			RenderInstructions instructions)
+	{
+		return new InkscapeConfigMapRenderer(bbox, mercatorImage, instructions,
+				data.getView(mercatorImage));
+	}
+
 	public static CachedRenderingDataSource buildRenderingData(
 			MercatorImage mercatorImage, InMemoryListDataSet data,
 			RenderInstructions instructions)
+	{
+		return buildRenderingData(mercatorImage, data, instructions, 1);
+	}
+
+	public static CachedRenderingDataSource buildRenderingData(
+			MercatorImage mercatorImage, InMemoryListDataSet data,
+			RenderInstructions instructions, int threads)
+	{
+		return buildRenderingData(mercatorImage, data, null, instructions,
+				threads, false);
+	}
+
+	public static CachedRenderingDataSource buildRenderingData(
+			MercatorImage mercatorImage, InMemoryListDataSet data,
+			NodeCoordinateStore nodes, RenderInstructions instructions,
+			int threads, boolean projected)
 	{
 		logger.info("building rendering data...");
 		RenderingDataBuilder dataBuilder = new RenderingDataBuilder(mercatorImage, data,
 				instructions);
+		dataBuilder.setNodeCoordinates(nodes);
+		dataBuilder.setThreads(threads);
+		dataBuilder.setProjected(projected);
 		dataBuilder.buildRenderingData();
 		CachedRenderingDataSource renderingData = dataBuilder
 				.getRenderingData();
@@ -72,4 +110,83 @@ public class ConfigMapRenderer
 		return renderingData;
 	}
 
+	/**
+	 * Get the rendering data for the whole data set, reusing the result of a
+	 * previous build from the specified cache if available. Freshly built
+	 * data is stored in the cache.
+	 *
+	 * @param input
+	 *            the file the data set has been read from.
+	 */
+	public static CachedRenderingDataSource buildRenderingData(
+			RenderingDataCache cache, Path input, InMemoryListDataSet data,
+			NodeCoordinateStore nodes, RenderInstructions instructions,
+			int threads, boolean projected) throws IOException
+	{
+		CachedRenderingDataSource renderingData = cache.load(input,
+				instructions, projected);
+		if (renderingData != null) {
+			logger.info("using cached rendering data");
+			return renderingData;
+		}
+
+		logger.info("building rendering data for the whole data set...");
+		RenderingDataBuilder dataBuilder = new RenderingDataBuilder(data,
+				instructions);
+		dataBuilder.setNodeCoordinates(nodes);
+		dataBuilder.setThreads(threads);
+		dataBuilder.setProjected(projected);
+		dataBuilder.buildRenderingData();
+		renderingData = dataBuilder.getRenderingData();
+
+		try {
+			if (cache.store(input, instructions, renderingData)) {
+				logger.info("stored rendering data in cache");
+			}
+		} catch (IOException e) {
+			logger.warn("unable to store rendering data in cache", e);
+		}
+
+		return renderingData;
+	}
+
+	/**
+	 * Build the rendering data for the whole data set and index it, so that
+	 * renderers for arbitrary regions can be set up without building any
+	 * geometry.
+	 */
+	public static IndexedRenderingData buildIndexedRenderingData(
+			InMemoryListDataSet data, NodeCoordinateStore nodes,
+			RenderInstructions instructions, int threads, boolean projected)
+	{
+		logger.info("building rendering data for the whole data set...");
+		RenderingDataBuilder dataBuilder = new RenderingDataBuilder(data,
+				instructions);
+		dataBuilder.setNodeCoordinates(nodes);
+		dataBuilder.setThreads(threads);
+		dataBuilder.setProjected(projected);
+		dataBuilder.buildRenderingData();
+		logger.info("indexing...");
+		IndexedRenderingData indexed = new IndexedRenderingData(
+				dataBuilder.getRenderingData());
+		logger.info("done");
+
+		return indexed;
+	}
+
+	public static IndexedRenderingData buildIndexedRenderingData(
+			RenderingDataCache cache, Path input, InMemoryListDataSet data,
+			NodeCoordinateStore nodes, RenderInstructions instructions,
+			int threads, boolean projected) throws IOException
+	{
+		CachedRenderingDataSource renderingData = buildRenderingData(cache,
+				input, data, nodes, instructions, threads, projected);
+		logger.info("indexing...");
+		IndexedRenderingData indexed = new IndexedRenderingData(
+				renderingData);
+		logger.info("done");
+
+		return indexed;
+	}
+
 }
@@ -20,13 +20,30 @@ package de.topobyte.osmocrat.rendering;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JPanel;
-
-import de.topobyte.awt.util.GraphicsUtil;
-
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * A panel that displays a map rendered with a
+ * {@link GraphicsConfigMapRenderer}.
+ *
+ * The map is rendered on a background thread using a
+ * {@link BackgroundRenderer}, first as a quick preview and then in full
+ * quality, and the rendered image is reused for repaints until the viewport
+ * or the style changes. Dragging the map pans it: the displayed image is
+ * shifted right away, the preview only renders the newly exposed strips and
+ * the full render follows. Renders after resizing are delayed until resizing
+ * seems to be finished.
+ */
 public class ConfigMapRendererPanel extends JPanel
 {
 
@@ -37,41 +54,198 @@ public class ConfigMapRendererPanel extends JPanel
 
 	private GraphicsConfigMapRenderer configRenderer;
 
+	private BackgroundRenderer backgroundRenderer;
+
+	// Delays renders after resizing
+	private int delay = 250;
+	private Timer timer;
+
+	// Panning that has not been applied to the renderer yet and whether the
+	// last full image has been invalidated
+	private int pendingX = 0;
+	private int pendingY = 0;
+	private boolean pendingInvalidate = false;
+
+	// Only accessed on the render thread: the size of the renderer's mercator
+	// image, the last complete full quality image and how far the map has
+	// been panned since it has been rendered
+	private int width = -1;
+	private int height = -1;
+	private BufferedImage full = null;
+	private int shiftX = 0;
+	private int shiftY = 0;
+
 	public ConfigMapRendererPanel(GraphicsConfigMapRenderer configRenderer)
 	{
 		this.configRenderer = configRenderer;
 
-		// When the panel's size changes, define a new MercatorImage and trigger
-		// a repaint on our panel
+		backgroundRenderer = new BackgroundRenderer(this, cBackground);
+
+		timer = new Timer(delay, e -> render());
+		timer.setRepeats(false);
+
+		// When the panel's size changes, render the map again for the new
+		// size, once resizing seems to be finished
 		addComponentListener(new ComponentAdapter() {
 
 			@Override
 			public void componentResized(ComponentEvent e)
 			{
-				refreshMercatorImage();
-				repaint();
+				timer.restart();
 			}
 
 		});
+
+		MouseAdapter mouseAdapter = new MouseAdapter() {
+
+			private Point last = null;
+
+			@Override
+			public void mousePressed(MouseEvent e)
+			{
+				if (SwingUtilities.isLeftMouseButton(e)) {
+					last = e.getPoint();
+				}
+			}
+
+			@Override
+			public void mouseReleased(MouseEvent e)
+			{
+				last = null;
+			}
+
+			@Override
+			public void mouseDragged(MouseEvent e)
+			{
+				if (last == null) {
+					return;
+				}
+				Point point = e.getPoint();
+				pan(point.x - last.x, point.y - last.y);
+				last = point;
+			}
+
+		};
+		addMouseListener(mouseAdapter);
+		addMouseMotionListener(mouseAdapter);
+	}
+
+	/**
+	 * Render the map again. Call this after changing the renderer's
+	 * configuration.
+	 */
+	public void invalidateBuffer()
+	{
+		synchronized (this) {
+			pendingInvalidate = true;
+		}
+		render();
+	}
+
+	/**
+	 * Move the map by the specified number of pixels.
+	 */
+	public void pan(int dx, int dy)
+	{
+		if (dx == 0 && dy == 0) {
+			return;
+		}
+		synchronized (this) {
+			pendingX += dx;
+			pendingY += dy;
+		}
+		backgroundRenderer.shift(dx, dy);
+		render();
+	}
+
+	private void render()
+	{
+		int w = getWidth();
+		int h = getHeight();
+		backgroundRenderer.render(w, h, () -> prepare(w, h), this::paint);
+	}
+
+	private void prepare(int w, int h)
+	{
+		int dx, dy;
+		synchronized (this) {
+			dx = pendingX;
+			dy = pendingY;
+			pendingX = 0;
+			pendingY = 0;
+			if (pendingInvalidate) {
+				full = null;
+				pendingInvalidate = false;
+			}
+		}
+		if (dx != 0 || dy != 0) {
+			configRenderer.pan(dx, dy);
+			shiftX += dx;
+			shiftY += dy;
+		}
+		if (w != width || h != height) {
+			configRenderer.refreshMercatorImage(w, h);
+			width = w;
+			height = h;
+		}
 	}
 
-	public void refreshMercatorImage()
+	private void paint(BufferedImage image, boolean preview)
 	{
-		configRenderer.refreshMercatorImage(getWidth(), getHeight());
+		Graphics2D g = image.createGraphics();
+		if (!preview) {
+			g.setColor(cBackground);
+			g.fillRect(0, 0, image.getWidth(), image.getHeight());
+			configRenderer.paint(g);
+			g.dispose();
+			// A cancelled render is incomplete and must not become the base
+			// for later previews
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			full = image;
+			shiftX = 0;
+			shiftY = 0;
+			return;
+		}
+
+		if (full == null || full.getWidth() != image.getWidth()
+				|| full.getHeight() != image.getHeight()) {
+			g.setColor(cBackground);
+			g.fillRect(0, 0, image.getWidth(), image.getHeight());
+			configRenderer.paintPreview(g);
+			g.dispose();
+			return;
+		}
+
+		// Reuse the last full image and only render the strips that have
+		// been exposed by panning since
+		g.drawImage(full, shiftX, shiftY, null);
+		int w = image.getWidth();
+		int h = image.getHeight();
+		Rectangle vertical = shiftX > 0 ? new Rectangle(0, 0, shiftX, h)
+				: new Rectangle(w + shiftX, 0, -shiftX, h);
+		Rectangle horizontal = shiftY > 0 ? new Rectangle(0, 0, w, shiftY)
+				: new Rectangle(0, h + shiftY, w, -shiftY);
+		for (Rectangle strip : new Rectangle[] { vertical, horizontal }) {
+			if (strip.isEmpty()) {
+				continue;
+			}
+			Graphics2D gs = (Graphics2D) g.create();
+			gs.clip(strip);
+			gs.setColor(cBackground);
+			gs.fill(strip);
+			configRenderer.paintPreview(gs);
+			gs.dispose();
+		}
+		g.dispose();
 	}
 
 	@Override
 	protected void paintComponent(Graphics graphics)
 	{
 		super.paintComponent(graphics);
-		Graphics2D g = (Graphics2D) graphics;
-		GraphicsUtil.useAntialiasing(g, true);
-
-		// Fill the background
-		g.setColor(cBackground);
-		g.fillRect(0, 0, getWidth(), getHeight());
-
-		configRenderer.paint(graphics);
+		backgroundRenderer.paint(graphics, getWidth(), getHeight());
 	}
 
 }
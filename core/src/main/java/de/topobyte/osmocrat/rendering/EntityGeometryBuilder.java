@@ -0,0 +1,228 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiPolygon;
+
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+import de.topobyte.osm4j.geometry.RegionBuilder;
+import de.topobyte.osm4j.geometry.RegionBuilderResult;
+import de.topobyte.osm4j.geometry.WayBuilder;
+import de.topobyte.osm4j.geometry.WayBuilderResult;
+
+/**
+ * Builds line and area geometries for entities and remembers the geometries
+ * of the entity seen last. An entity matched by several instructions will thus
+ * have its geometry built only once, and all instructions share the same
+ * geometry objects, as long as all requests for an entity are made before
+ * moving on to the next entity.
+ *
+ * Optionally, geometries can be projected to Web Mercator meters.
+ *
+ * Instances are not thread-safe.
+ */
+public class EntityGeometryBuilder
+{
+
+	private InMemoryListDataSet data;
+	private NodeCoordinateStore nodes;
+
+	private GeometryFactory factory = new GeometryFactory();
+	private WayBuilder wayBuilder = new WayBuilder();
+	private RegionBuilder regionBuilder = new RegionBuilder();
+
+	private GeometryCounters counters = new GeometryCounters();
+
+	// Whether to project geometries to Web Mercator meters
+	private boolean projected = false;
+
+	private OsmWay lineWay = null;
+	private Collection<LineString> lines = null;
+
+	private OsmWay polygonWay = null;
+	private MultiPolygon wayPolygon = null;
+
+	private OsmRelation polygonRelation = null;
+	private MultiPolygon relationPolygon = null;
+
+	public EntityGeometryBuilder(InMemoryListDataSet data)
+	{
+		this(data, null);
+	}
+
+	/**
+	 * @param nodes
+	 *            if not null, way lines are built from the coordinates in this
+	 *            store instead of resolving the way nodes in the data set.
+	 */
+	public EntityGeometryBuilder(InMemoryListDataSet data,
+			NodeCoordinateStore nodes)
+	{
+		this.data = data;
+		this.nodes = nodes;
+	}
+
+	public GeometryCounters getCounters()
+	{
+		return counters;
+	}
+
+	public boolean isProjected()
+	{
+		return projected;
+	}
+
+	public void setProjected(boolean projected)
+	{
+		this.projected = projected;
+	}
+
+	public Collection<LineString> getLine(OsmWay way)
+	{
+		boolean build = way != lineWay;
+		counters.lineRequested(build);
+		if (build) {
+			lines = project(buildLine(way));
+			lineWay = way;
+		}
+		return lines;
+	}
+
+	public MultiPolygon getPolygon(OsmWay way)
+	{
+		boolean build = way != polygonWay;
+		counters.polygonRequested(build);
+		if (build) {
+			wayPolygon = project(buildPolygon(way));
+			polygonWay = way;
+		}
+		return wayPolygon;
+	}
+
+	public MultiPolygon getPolygon(OsmRelation relation)
+	{
+		boolean build = relation != polygonRelation;
+		counters.polygonRequested(build);
+		if (build) {
+			relationPolygon = project(buildPolygon(relation));
+			polygonRelation = relation;
+		}
+		return relationPolygon;
+	}
+
+	private Collection<LineString> project(Collection<LineString> lines)
+	{
+		if (!projected || lines.isEmpty()) {
+			return lines;
+		}
+		List<LineString> results = new ArrayList<>(lines.size());
+		for (LineString line : lines) {
+			results.add((LineString) WebMercator.project(line));
+		}
+		return results;
+	}
+
+	private MultiPolygon project(MultiPolygon polygon)
+	{
+		if (!projected || polygon == null) {
+			return polygon;
+		}
+		return (MultiPolygon) WebMercator.project(polygon);
+	}
+
+	protected Collection<LineString> buildLine(OsmWay way)
+	{
+		if (nodes != null) {
+			return buildLineFromStore(way);
+		}
+
+		List<LineString> results = new ArrayList<>();
+		try {
+			WayBuilderResult lines = wayBuilder.build(way, data);
+			results.addAll(lines.getLineStrings());
+			if (lines.getLinearRing() != null) {
+				results.add(lines.getLinearRing());
+			}
+		} catch (Throwable e) {
+			// ignore
+		}
+		return results;
+	}
+
+	/*
+	 * Mirrors what WayBuilder does with its default settings: ways with missing
+	 * nodes are dropped, closed ways with at least 4 nodes become a
+	 * LinearRing, others a LineString.
+	 */
+	protected Collection<LineString> buildLineFromStore(OsmWay way)
+	{
+		int numNodes = way.getNumberOfNodes();
+		if (numNodes < 2) {
+			return Collections.emptyList();
+		}
+
+		Coordinate[] coordinates = new Coordinate[numNodes];
+		for (int i = 0; i < numNodes; i++) {
+			int index = nodes.indexOf(way.getNodeId(i));
+			if (index < 0) {
+				return Collections.emptyList();
+			}
+			coordinates[i] = new Coordinate(nodes.getLongitude(index),
+					nodes.getLatitude(index));
+		}
+
+		boolean closed = way.getNodeId(0) == way.getNodeId(numNodes - 1);
+		if (closed && numNodes >= 4) {
+			return Collections.singletonList(
+					factory.createLinearRing(coordinates));
+		}
+		return Collections.singletonList(
+				factory.createLineString(coordinates));
+	}
+
+	protected MultiPolygon buildPolygon(OsmWay way)
+	{
+		try {
+			RegionBuilderResult region = regionBuilder.build(way, data);
+			return region.getMultiPolygon();
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+
+	protected MultiPolygon buildPolygon(OsmRelation relation)
+	{
+		try {
+			RegionBuilderResult region = regionBuilder.build(relation, data);
+			return region.getMultiPolygon();
+		} catch (Throwable e) {
+			return null;
+		}
+	}
+
+}
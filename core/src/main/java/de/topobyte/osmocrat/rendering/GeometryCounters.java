@@ -0,0 +1,120 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+/**
+ * Counts how often geometries have been requested while building rendering
+ * data and how often they actually had to be built.
+ */
+public class GeometryCounters
+{
+
+	private long lineRequests = 0;
+	private long lineBuilds = 0;
+	private long polygonRequests = 0;
+	private long polygonBuilds = 0;
+	private long skipped = 0;
+
+	public void lineRequested(boolean built)
+	{
+		lineRequests++;
+		if (built) {
+			lineBuilds++;
+		}
+	}
+
+	public void polygonRequested(boolean built)
+	{
+		polygonRequests++;
+		if (built) {
+			polygonBuilds++;
+		}
+	}
+
+	/**
+	 * Count an entity whose geometry has not been built because it cannot
+	 * intersect the region of interest.
+	 */
+	public void entitySkipped()
+	{
+		skipped++;
+	}
+
+	public void add(GeometryCounters other)
+	{
+		lineRequests += other.lineRequests;
+		lineBuilds += other.lineBuilds;
+		polygonRequests += other.polygonRequests;
+		polygonBuilds += other.polygonBuilds;
+		skipped += other.skipped;
+	}
+
+	public long getLineRequests()
+	{
+		return lineRequests;
+	}
+
+	public long getLineBuilds()
+	{
+		return lineBuilds;
+	}
+
+	public long getPolygonRequests()
+	{
+		return polygonRequests;
+	}
+
+	public long getPolygonBuilds()
+	{
+		return polygonBuilds;
+	}
+
+	public long getSkipped()
+	{
+		return skipped;
+	}
+
+	public double getLineHitRate()
+	{
+		return hitRate(lineRequests, lineBuilds);
+	}
+
+	public double getPolygonHitRate()
+	{
+		return hitRate(polygonRequests, polygonBuilds);
+	}
+
+	private static double hitRate(long requests, long builds)
+	{
+		if (requests == 0) {
+			return 0;
+		}
+		return (requests - builds) / (double) requests;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format(
+				"lines: %d requested, %d built (%.1f%% hits); polygons: %d requested, %d built (%.1f%% hits); %d entities skipped",
+				lineRequests, lineBuilds, getLineHitRate() * 100,
+				polygonRequests, polygonBuilds, getPolygonHitRate() * 100,
+				skipped);
+	}
+
+}
@@ -18,14 +18,19 @@
 package de.topobyte.osmocrat.rendering;
 
 import java.awt.BasicStroke;
-import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Shape;
+import java.awt.Stroke;
 import java.awt.geom.Area;
 import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
@@ -34,9 +39,10 @@ import org.locationtech.jts.geom.Polygon;
 import de.topobyte.adt.geo.BBox;
 import de.topobyte.awt.util.GraphicsUtil;
 import de.topobyte.chromaticity.AwtColors;
+import de.topobyte.chromaticity.ColorCode;
 import de.topobyte.chromaticity.WebColors;
+import de.topobyte.jgs.transform.CoordinateTransformer;
 import de.topobyte.jgs.transform.IdentityCoordinateTransformer;
-import de.topobyte.jts.utils.transform.CoordinateGeometryTransformer;
 import de.topobyte.jts2awt.Jts2Awt;
 import de.topobyte.mercator.image.MercatorImage;
 import de.topobyte.osmocrat.rendering.config.RenderInstructions;
@@ -52,12 +58,7 @@ import de.topobyte.osmocrat.rendering.config.instructions.ways.SimpleWayStyle;
 import de.topobyte.osmocrat.rendering.config.instructions.ways.TextWayStyle;
 import de.topobyte.osmocrat.rendering.config.instructions.ways.TwofoldWayStyle;
 import de.topobyte.osmocrat.rendering.config.instructions.ways.WayStyle;
-import de.topobyte.osmocrat.text.BoolResult;
 import de.topobyte.osmocrat.text.GeneralRectangle;
-import de.topobyte.osmocrat.text.TextIntersectionCheckerTree;
-import de.topobyte.osmocrat.text.TextUtil;
-import de.topobyte.osmocrat.text.awt.AwtTextUtil;
-import de.topobyte.osmocrat.text.awt.TextPath;
 
 public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 {
@@ -66,18 +67,241 @@ public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 			RenderInstructions instructions, RenderingDataSource renderingData)
 	{
 		super(bbox, mercatorImage, instructions, renderingData);
+		resetShapeTransformer();
+	}
+
+	// Shapes converted from geometries, so that geometries painted more than
+	// once, within one frame or across frames, only have to be converted
+	// once. Shapes are in the image coordinates of shapeTransformer, the
+	// transformer at the time the caches were started. Panning keeps the
+	// scale, so cached shapes remain valid and are painted translated by
+	// (shiftX, shiftY). Changing the scale clears the caches. They are bounded
+	// by the geometries of the rendering data.
+	private boolean cacheShapes = true;
+	private final Map<LineString, Path2D> paths = new IdentityHashMap<>();
+	private final Map<Geometry, Shape> shapes = new IdentityHashMap<>();
+	private CoordinateTransformer shapeTransformer;
+	private double shapeWorldSize;
+	private double shiftX = 0;
+	private double shiftY = 0;
+
+	// Whether to stroke the ways of an instruction with a few calls on
+	// combined paths, each containing up to batchSize ways, instead of with
+	// one call per way
+	private boolean batchStrokes = false;
+	private int batchSize = 4096;
+
+	public boolean isBatchStrokes()
+	{
+		return batchStrokes;
+	}
+
+	public void setBatchStrokes(boolean batchStrokes)
+	{
+		this.batchStrokes = batchStrokes;
+	}
+
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+
+	public boolean isCacheShapes()
+	{
+		return cacheShapes;
+	}
+
+	public void setCacheShapes(boolean cacheShapes)
+	{
+		this.cacheShapes = cacheShapes;
+		clearShapeCache();
+	}
+
+	public void clearShapeCache()
+	{
+		synchronized (paths) {
+			paths.clear();
+		}
+		synchronized (shapes) {
+			shapes.clear();
+		}
+		resetShapeTransformer();
+	}
+
+	private void resetShapeTransformer()
+	{
+		shapeTransformer = transformer;
+		shapeWorldSize = mercatorImage.getWorldSize();
+		shiftX = 0;
+		shiftY = 0;
+	}
+
+	@Override
+	public void refreshMercatorImage(int width, int height)
+	{
+		super.refreshMercatorImage(width, height);
+		// At the same scale, images of the Mercator projection only differ by
+		// a translation, which we determine with any reference coordinate
+		double worldSize = mercatorImage.getWorldSize();
+		if (Math.abs(worldSize - shapeWorldSize) > worldSize * 1e-10) {
+			clearShapeCache();
+			return;
+		}
+		shiftX = transformer.getX(0) - shapeTransformer.getX(0);
+		shiftY = transformer.getY(0) - shapeTransformer.getY(0);
+	}
+
+	/**
+	 * Convert all geometries of the rendering data for the current mercator
+	 * image, so that subsequent paints only need to look up the cached
+	 * shapes.
+	 */
+	public void prepareShapes()
+	{
+		if (!cacheShapes) {
+			return;
+		}
+		for (Instruction instruction : instructions.getInstructions()) {
+			if (instruction instanceof WayInstruction) {
+				for (LineString string : renderingData.getWays(instruction)) {
+					getPath(string);
+				}
+			} else if (instruction instanceof AreaInstruction) {
+				for (Geometry area : renderingData.getAreas(instruction)) {
+					getShape(area);
+				}
+			}
+		}
+	}
+
+	// The caches are synchronized, since parts of the image may be painted
+	// concurrently. The shapes returned need to be painted with
+	// translated(Graphics2D).
+	private Path2D getPath(LineString string)
+	{
+		if (!cacheShapes) {
+			return Jts2Awt.getPath(string, shapeTransformer);
+		}
+		synchronized (paths) {
+			Path2D path = paths.get(string);
+			if (path == null) {
+				path = Jts2Awt.getPath(string, shapeTransformer);
+				paths.put(string, path);
+			}
+			return path;
+		}
+	}
+
+	private Shape getShape(Geometry geometry)
+	{
+		if (!cacheShapes) {
+			return Jts2Awt.toShape(geometry, shapeTransformer);
+		}
+		synchronized (shapes) {
+			Shape shape = shapes.get(geometry);
+			if (shape == null) {
+				shape = Jts2Awt.toShape(geometry, shapeTransformer);
+				shapes.put(geometry, shape);
+			}
+			return shape;
+		}
+	}
+
+	/**
+	 * Create a graphics to paint shapes from the caches with, which applies
+	 * the translation of the current image relative to the cached shapes.
+	 * The clip of the specified graphics needs to be determined before.
+	 */
+	private Graphics2D translated(Graphics2D g)
+	{
+		Graphics2D t = (Graphics2D) g.create();
+		t.translate(shiftX, shiftY);
+		return t;
+	}
+
+	/**
+	 * Test whether the specified geometry may be visible within the clip,
+	 * which may be null for no clip at all. The margin extends the geometry's
+	 * bounds in image coordinates, to account for stroke widths.
+	 */
+	private boolean isVisible(Geometry geometry, Rectangle clip,
+			double margin)
+	{
+		if (clip == null) {
+			return true;
+		}
+		Envelope envelope = geometry.getEnvelopeInternal();
+		double x1 = transformer.getX(envelope.getMinX());
+		double x2 = transformer.getX(envelope.getMaxX());
+		double y1 = transformer.getY(envelope.getMinY());
+		double y2 = transformer.getY(envelope.getMaxY());
+		return Math.max(x1, x2) + margin >= clip.getMinX()
+				&& Math.min(x1, x2) - margin <= clip.getMaxX()
+				&& Math.max(y1, y2) + margin >= clip.getMinY()
+				&& Math.min(y1, y2) - margin <= clip.getMaxY();
+	}
+
+	private static double margin(Stroke stroke)
+	{
+		if (!(stroke instanceof BasicStroke)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		BasicStroke basicStroke = (BasicStroke) stroke;
+		double margin = basicStroke.getLineWidth() / 2;
+		if (basicStroke.getLineJoin() == BasicStroke.JOIN_MITER) {
+			margin *= basicStroke.getMiterLimit();
+		}
+		// one more pixel for antialiasing
+		return margin + 1;
 	}
 
 	public void paint(Graphics graphics)
+	{
+		paint(graphics, placeLabels());
+	}
+
+	/**
+	 * Decide which labels to draw and where. This needs to be done once for
+	 * the whole image and can then be used for painting the image in parts.
+	 *
+	 * @return the placed labels for each label instruction.
+	 */
+	public Map<Instruction, List<PlacedLabel>> placeLabels()
+	{
+		textIntersectionChecker = createTextIntersectionChecker();
+
+		LabelPlacer placer = createLabelPlacer(5 * scaleText);
+		return placer.place(instructions.getInstructions(),
+				textIntersectionChecker);
+	}
+
+	/**
+	 * Paint the map with the specified, previously placed labels. This may be
+	 * called concurrently for different parts of an image, each with its own
+	 * graphics and clip. Painting stops early if the current thread gets
+	 * interrupted, so that renderings in the background can be cancelled.
+	 */
+	public void paint(Graphics graphics,
+			Map<Instruction, List<PlacedLabel>> labels)
 	{
 		Graphics2D g = (Graphics2D) graphics;
 		GraphicsUtil.useAntialiasing(g, true);
 
-		textIntersectionChecker = new TextIntersectionCheckerTree();
-
 		for (Instruction instruction : instructions.getInstructions()) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
 			if (instruction instanceof WayInstruction) {
 				WayInstruction wi = (WayInstruction) instruction;
+				if (wi.getStyle() instanceof TextWayStyle) {
+					render(g, labels.get(instruction));
+					continue;
+				}
 				List<LineString> strings = renderingData.getWays(instruction);
 				render(g, wi, strings);
 			} else if (instruction instanceof AreaInstruction) {
@@ -98,6 +322,76 @@ public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 		}
 	}
 
+	/**
+	 * Paint a quick preview of the map: without antialiasing and labels,
+	 * leaving out geometries smaller than a pixel, and with ways stroked
+	 * along simplified paths without dashes. Like
+	 * {@link #paint(Graphics, Map)}, this respects the clip and stops early
+	 * if the current thread gets interrupted.
+	 */
+	public void paintPreview(Graphics graphics)
+	{
+		Graphics2D g = (Graphics2D) graphics;
+		GraphicsUtil.useAntialiasing(g, false);
+		Rectangle clip = g.getClipBounds();
+
+		for (Instruction instruction : instructions.getInstructions()) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			if (instruction instanceof WayInstruction) {
+				WayStyle style = ((WayInstruction) instruction).getStyle();
+				List<LineString> strings = renderingData.getWays(instruction);
+				if (style instanceof SimpleWayStyle) {
+					SimpleWayStyle simple = (SimpleWayStyle) style;
+					drawPreview(g, strings, simple.getColor(),
+							simple.getWidth(), clip);
+				} else if (style instanceof TwofoldWayStyle) {
+					TwofoldWayStyle twofold = (TwofoldWayStyle) style;
+					drawPreview(g, strings, twofold.getBg(),
+							twofold.getWidthBG(), clip);
+					drawPreview(g, strings, twofold.getFg(),
+							twofold.getWidthFG(), clip);
+				} else if (style instanceof DashedWayStyle) {
+					DashedWayStyle dashed = (DashedWayStyle) style;
+					drawPreview(g, strings, dashed.getColor(),
+							dashed.getWidth(), clip);
+				}
+			} else if (instruction instanceof AreaInstruction) {
+				AreaStyle style = ((AreaInstruction) instruction).getStyle();
+				if (!(style instanceof SimpleAreaStyle)) {
+					continue;
+				}
+				Graphics2D t = translated(g);
+				t.setColor(AwtColors.convert(
+						((SimpleAreaStyle) style).getColor()));
+				for (Geometry area : renderingData.getAreas(instruction)) {
+					if (!isVisible(area, clip, 1)
+							|| PreviewPaths.isTiny(area, transformer)) {
+						continue;
+					}
+					t.fill(getShape(area));
+				}
+				t.dispose();
+			}
+		}
+	}
+
+	private void drawPreview(Graphics2D g, List<LineString> strings,
+			ColorCode color, double width, Rectangle clip)
+	{
+		g.setColor(AwtColors.convert(color));
+		g.setStroke(new BasicStroke((float) (width * scaleLines)));
+		double margin = margin(g.getStroke());
+		for (LineString string : strings) {
+			if (!isVisible(string, clip, margin)
+					|| PreviewPaths.isTiny(string, transformer)) {
+				continue;
+			}
+			g.draw(PreviewPaths.getPath(string, transformer));
+		}
+	}
+
 	private void render(Graphics2D g, AreaInstruction ai,
 			List<Geometry> geometries)
 	{
@@ -110,11 +404,17 @@ public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 	private void render(Graphics2D g, SimpleAreaStyle style,
 			List<Geometry> geometries)
 	{
-		g.setColor(AwtColors.convert(style.getColor()));
+		Rectangle clip = g.getClipBounds();
+		Graphics2D t = translated(g);
+		t.setColor(AwtColors.convert(style.getColor()));
 		for (Geometry area : geometries) {
-			Shape polygon = Jts2Awt.toShape(area, mercatorImage);
-			g.fill(polygon);
+			if (!isVisible(area, clip, 1)) {
+				continue;
+			}
+			Shape polygon = getShape(area);
+			t.fill(polygon);
 		}
+		t.dispose();
 	}
 
 	private void render(Graphics2D g, WayInstruction wi,
@@ -127,8 +427,6 @@ public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 			render(g, (TwofoldWayStyle) style, strings);
 		} else if (style instanceof DashedWayStyle) {
 			render(g, (DashedWayStyle) style, strings);
-		} else if (style instanceof TextWayStyle) {
-			render(g, (TextWayStyle) style, strings);
 		}
 	}
 
@@ -138,10 +436,7 @@ public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 		g.setColor(AwtColors.convert(style.getColor()));
 		g.setStroke(new BasicStroke((float) (style.getWidth() * scaleLines),
 				cap(style.getLineCap()), join(style.getLineJoin())));
-		for (LineString string : strings) {
-			Path2D path = Jts2Awt.getPath(string, mercatorImage);
-			g.draw(path);
-		}
+		draw(g, strings);
 	}
 
 	private void render(Graphics2D g, TwofoldWayStyle style,
@@ -150,19 +445,12 @@ public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 		g.setColor(AwtColors.convert(style.getBg()));
 		g.setStroke(new BasicStroke((float) (style.getWidthBG() * scaleLines),
 				cap(style.getLineCap()), join(style.getLineJoin())));
-		for (LineString string : strings) {
-			Path2D path = Jts2Awt.getPath(string, mercatorImage);
-			g.draw(path);
-			// System.out.println("lineto");
-		}
+		draw(g, strings);
 
 		g.setColor(AwtColors.convert(style.getFg()));
 		g.setStroke(new BasicStroke((float) (style.getWidthFG() * scaleLines),
 				cap(style.getLineCap()), join(style.getLineJoin())));
-		for (LineString string : strings) {
-			Path2D path = Jts2Awt.getPath(string, mercatorImage);
-			g.draw(path);
-		}
+		draw(g, strings);
 	}
 
 	private void render(Graphics2D g, DashedWayStyle style,
@@ -180,60 +468,86 @@ public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 		g.setStroke(new BasicStroke((float) (style.getWidth() * scaleLines),
 				cap(style.getLineCap()), join(style.getLineJoin()), 10.0f, dash,
 				style.getDashPhase() * scaleLines));
-		for (LineString string : strings) {
-			Path2D path = Jts2Awt.getPath(string, mercatorImage);
-			g.draw(path);
+		draw(g, strings);
+	}
+
+	private void draw(Graphics2D g, List<LineString> strings)
+	{
+		Rectangle clip = g.getClipBounds();
+		double margin = margin(g.getStroke());
+		Graphics2D t = translated(g);
+		try {
+			draw(t, strings, clip, margin);
+		} finally {
+			t.dispose();
 		}
 	}
 
-	private void render(Graphics2D g, TextWayStyle style,
-			List<LineString> strings)
+	private void draw(Graphics2D g, List<LineString> strings, Rectangle clip,
+			double margin)
 	{
+		if (!batchStrokes) {
+			for (LineString string : strings) {
+				if (!isVisible(string, clip, margin)) {
+					continue;
+				}
+				Path2D path = getPath(string);
+				g.draw(path);
+			}
+			return;
+		}
+
+		// Each way is appended as a separate subpath. The stroker restarts
+		// dash patterns at each subpath, so this looks the same as stroking
+		// the ways one by one.
+		Path2D batch = new Path2D.Double();
+		int size = 0;
 		for (LineString string : strings) {
-			String name = renderingData.getName(string);
-			if (name == null) {
+			if (!isVisible(string, clip, margin)) {
 				continue;
 			}
-			renderLabel(g, string, name, style);
+			batch.append(getPath(string), false);
+			if (++size >= batchSize) {
+				g.draw(batch);
+				batch = new Path2D.Double();
+				size = 0;
+			}
+		}
+		if (size > 0) {
+			g.draw(batch);
 		}
 	}
 
-	private void renderLabel(Graphics2D g, LineString string, String label,
-			TextWayStyle style)
+	private void render(Graphics2D g, List<PlacedLabel> labels)
 	{
-		Path2D path = Jts2Awt.getPath(string, mercatorImage);
-		LineString stringImage = (LineString) new CoordinateGeometryTransformer(
-				mercatorImage).transform(string);
-
-		double padding = 5 * scaleText;
-
-		int fontSize = (int) (style.getSize() * scaleText + 0.5);
-		Font font = new Font(style.getFontName(), Font.PLAIN, fontSize);
-
-		float pathLength = AwtTextUtil.measurePathLength(path);
-		double textLength = AwtTextUtil.getTextWidth(font, label);
-		double paddedTextLength = textLength + 2 * padding;
-
-		if (paddedTextLength > pathLength) {
+		if (labels == null) {
 			return;
 		}
-
-		double offset = (pathLength - paddedTextLength) / 2;
-
-		BoolResult isReverse = new BoolResult();
-		float[][] boxes = TextUtil.createTextBoxes(stringImage, offset,
-				paddedTextLength, fontSize, isReverse);
-
-		if (!textIntersectionChecker.isValid(boxes)) {
-			return;
+		Rectangle clip = g.getClipBounds();
+		for (PlacedLabel label : labels) {
+			TextWayStyle style = label.getStyle();
+			double margin = style.getWidthOutline() * getScaleText() / 2 + 1;
+			if (clip != null) {
+				Rectangle2D bounds = label.getBounds();
+				if (bounds.getMaxX() + margin < clip.getMinX()
+						|| bounds.getMinX() - margin > clip.getMaxX()
+						|| bounds.getMaxY() + margin < clip.getMinY()
+						|| bounds.getMinY() - margin > clip.getMaxY()) {
+					continue;
+				}
+			}
+			renderLabel(g, label);
 		}
+	}
 
-		textIntersectionChecker.add(boxes);
+	private void renderLabel(Graphics2D g, PlacedLabel label)
+	{
+		TextWayStyle style = label.getStyle();
 
 		if (drawTextBoxes) {
 			g.setColor(AwtColors.convert(WebColors.GREEN.color()));
 			g.setStroke(new BasicStroke(1));
-			for (float[] box : boxes) {
+			for (float[] box : label.getBoxes()) {
 				Polygon polygon = GeneralRectangle.createPolygon(box);
 				Area area = Jts2Awt.toShape(polygon,
 						new IdentityCoordinateTransformer());
@@ -241,15 +555,7 @@ public class GraphicsConfigMapRenderer extends BaseConfigMapRenderer
 			}
 		}
 
-		TextPath line = AwtTextUtil.createLine(path, (float) paddedTextLength,
-				(float) offset);
-		Path2D p = line.getPath();
-
-		if (isReverse.value) {
-			p = AwtTextUtil.reverse(p);
-		}
-
-		Shape shape = AwtTextUtil.createStrokedShape(p, font, label);
+		Shape shape = label.getShape();
 
 		g.setColor(AwtColors.convert(style.getColorOutline()));
 		g.setStroke(new BasicStroke(style.getWidthOutline() * getScaleText(),
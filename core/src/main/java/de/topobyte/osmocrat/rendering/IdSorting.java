@@ -0,0 +1,113 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+/**
+ * Sorting of entity id arrays that also yields the permutation applied, so
+ * that arrays of per-entity values kept in parallel can be reordered the
+ * same way. Works on primitive arrays only, without boxing indices.
+ */
+class IdSorting
+{
+
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	/**
+	 * Sort the specified ids in place.
+	 *
+	 * @return the permutation applied, i.e. the sorted id at index i was
+	 *         located at index order[i] before sorting.
+	 */
+	static int[] sort(long[] ids)
+	{
+		int[] order = new int[ids.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		sort(ids, order, 0, ids.length - 1);
+		return order;
+	}
+
+	private static void sort(long[] ids, int[] order, int lo, int hi)
+	{
+		// Recurse into the smaller partition and loop on the larger one, so
+		// that the recursion depth stays logarithmic
+		while (hi - lo >= INSERTION_SORT_THRESHOLD) {
+			int mid = (lo + hi) >>> 1;
+			// Median of three, moved to hi as the pivot
+			if (ids[mid] < ids[lo]) {
+				swap(ids, order, mid, lo);
+			}
+			if (ids[hi] < ids[lo]) {
+				swap(ids, order, hi, lo);
+			}
+			if (ids[mid] < ids[hi]) {
+				swap(ids, order, mid, hi);
+			}
+			long pivot = ids[hi];
+
+			int i = lo - 1;
+			int j = hi;
+			while (true) {
+				while (ids[++i] < pivot) {
+					// advance
+				}
+				while (j > lo && ids[--j] > pivot) {
+					// advance
+				}
+				if (i >= j) {
+					break;
+				}
+				swap(ids, order, i, j);
+			}
+			swap(ids, order, i, hi);
+
+			if (i - lo < hi - i) {
+				sort(ids, order, lo, i - 1);
+				lo = i + 1;
+			} else {
+				sort(ids, order, i + 1, hi);
+				hi = i - 1;
+			}
+		}
+
+		for (int i = lo + 1; i <= hi; i++) {
+			long id = ids[i];
+			int index = order[i];
+			int j = i - 1;
+			while (j >= lo && ids[j] > id) {
+				ids[j + 1] = ids[j];
+				order[j + 1] = order[j];
+				j--;
+			}
+			ids[j + 1] = id;
+			order[j + 1] = index;
+		}
+	}
+
+	private static void swap(long[] ids, int[] order, int i, int j)
+	{
+		long id = ids[i];
+		ids[i] = ids[j];
+		ids[j] = id;
+		int index = order[i];
+		order[i] = order[j];
+		order[j] = index;
+	}
+
+}
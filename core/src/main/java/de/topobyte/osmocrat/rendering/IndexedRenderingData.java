@@ -0,0 +1,156 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import de.topobyte.adt.geo.BBox;
+import de.topobyte.mercator.image.MercatorImage;
+import de.topobyte.osmocrat.rendering.config.instructions.AreaInstruction;
+import de.topobyte.osmocrat.rendering.config.instructions.WayInstruction;
+
+/**
+ * Rendering data for a whole data set, stored per instruction in STR-trees.
+ *
+ * The geometry of a data set only needs to be built once, after which
+ * {@link RenderingDataSource}s for arbitrary regions can be obtained with
+ * {@link #getView(Envelope)} by querying the indexes. Within each instruction,
+ * the geometries of a view keep the order of the original rendering data, so
+ * that rendering a view gives the same result as rendering data built for the
+ * region directly.
+ *
+ * Instances are safe for concurrent queries.
+ */
+public class IndexedRenderingData
+{
+
+	private static class Entry<T extends Geometry>
+	{
+
+		private int position;
+		private T geometry;
+
+		public Entry(int position, T geometry)
+		{
+			this.position = position;
+			this.geometry = geometry;
+		}
+
+	}
+
+	private static final Comparator<Entry<?>> ORDER = (a, b) -> Integer
+			.compare(a.position, b.position);
+
+	private Map<AreaInstruction, STRtree> areas = new HashMap<>();
+	private Map<WayInstruction, STRtree> ways = new HashMap<>();
+	private Map<LineString, String> names;
+	private boolean projected;
+
+	public IndexedRenderingData(CachedRenderingDataSource renderingData)
+	{
+		for (Map.Entry<AreaInstruction, List<Geometry>> entry : renderingData
+				.getAreas().entrySet()) {
+			areas.put(entry.getKey(), index(entry.getValue()));
+		}
+		for (Map.Entry<WayInstruction, List<LineString>> entry : renderingData
+				.getWays().entrySet()) {
+			ways.put(entry.getKey(), index(entry.getValue()));
+		}
+		names = renderingData.getNames();
+		projected = renderingData.isProjected();
+	}
+
+	private static <T extends Geometry> STRtree index(List<T> geometries)
+	{
+		STRtree tree = new STRtree();
+		for (int i = 0; i < geometries.size(); i++) {
+			T geometry = geometries.get(i);
+			tree.insert(geometry.getEnvelopeInternal(),
+					new Entry<>(i, geometry));
+		}
+		// Build eagerly, so that concurrent queries do not race for it
+		tree.build();
+		return tree;
+	}
+
+	public CachedRenderingDataSource getView(MercatorImage mercatorImage)
+	{
+		return getView(mercatorImage.getVisibleBoundingBox().toEnvelope());
+	}
+
+	public CachedRenderingDataSource getView(BBox bbox)
+	{
+		return getView(bbox.toEnvelope());
+	}
+
+	/**
+	 * Get the rendering data for the specified region.
+	 *
+	 * @param envelope
+	 *            the region of interest in geographic coordinates, also if
+	 *            the geometry is stored projected.
+	 * @return a data source with all geometries whose envelope intersects the
+	 *         region. The names map of the returned data source is shared
+	 *         with this instance and must not be modified.
+	 */
+	public CachedRenderingDataSource getView(Envelope envelope)
+	{
+		if (projected) {
+			envelope = WebMercator.project(envelope);
+		}
+		CachedRenderingDataSource view = new CachedRenderingDataSource();
+		for (Map.Entry<AreaInstruction, STRtree> entry : areas.entrySet()) {
+			view.areas.put(entry.getKey(), query(entry.getValue(), envelope));
+		}
+		for (Map.Entry<WayInstruction, STRtree> entry : ways.entrySet()) {
+			view.ways.put(entry.getKey(), query(entry.getValue(), envelope));
+		}
+		view.names = names;
+		view.projected = projected;
+		return view;
+	}
+
+	private static <T extends Geometry> List<T> query(STRtree tree,
+			Envelope envelope)
+	{
+		List<Entry<T>> entries = new ArrayList<>();
+		tree.query(envelope, item -> {
+			@SuppressWarnings("unchecked")
+			Entry<T> e = (Entry<T>) item;
+			entries.add(e);
+		});
+		Collections.sort(entries, ORDER);
+
+		List<T> results = new ArrayList<>(entries.size());
+		for (Entry<T> entry : entries) {
+			results.add(entry.geometry);
+		}
+		return results;
+	}
+
+}
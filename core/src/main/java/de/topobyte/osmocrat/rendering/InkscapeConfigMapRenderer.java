@@ -19,10 +19,9 @@ package de.topobyte.osmocrat.rendering;
 
 import static de.topobyte.inkscape4j.Styles.style;
 
-import java.awt.Font;
 import java.awt.Shape;
-import java.awt.geom.Path2D;
 import java.util.List;
+import java.util.Map;
 
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -42,7 +41,6 @@ import de.topobyte.inkscape4j.path.Path;
 import de.topobyte.inkscape4j.style.LineCap;
 import de.topobyte.inkscape4j.style.LineJoin;
 import de.topobyte.jts.utils.transform.CoordinateGeometryTransformer;
-import de.topobyte.jts2awt.Jts2Awt;
 import de.topobyte.mercator.image.MercatorImage;
 import de.topobyte.osmocrat.rendering.config.RenderInstructions;
 import de.topobyte.osmocrat.rendering.config.instructions.AreaInstruction;
@@ -55,12 +53,7 @@ import de.topobyte.osmocrat.rendering.config.instructions.ways.SimpleWayStyle;
 import de.topobyte.osmocrat.rendering.config.instructions.ways.TextWayStyle;
 import de.topobyte.osmocrat.rendering.config.instructions.ways.TwofoldWayStyle;
 import de.topobyte.osmocrat.rendering.config.instructions.ways.WayStyle;
-import de.topobyte.osmocrat.text.BoolResult;
 import de.topobyte.osmocrat.text.GeneralRectangle;
-import de.topobyte.osmocrat.text.TextIntersectionCheckerTree;
-import de.topobyte.osmocrat.text.TextUtil;
-import de.topobyte.osmocrat.text.awt.AwtTextUtil;
-import de.topobyte.osmocrat.text.awt.TextPath;
 
 public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 {
@@ -71,18 +64,23 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 		super(bbox, mercatorImage, instructions, renderingData);
 	}
 
-	private CoordinateGeometryTransformer transformer;
+	private CoordinateGeometryTransformer geometryTransformer;
 
 	private IdFactory idFactory = new SimpleIdFactory();
 	private Layer layer = null;
 
 	private Layer layerTextBoxes;
 
+	private Map<Instruction, List<PlacedLabel>> labels;
+
 	public void paint(SvgFile svg)
 	{
-		transformer = new CoordinateGeometryTransformer(mercatorImage);
+		geometryTransformer = new CoordinateGeometryTransformer(
+				transformer);
 
-		textIntersectionChecker = new TextIntersectionCheckerTree();
+		textIntersectionChecker = createTextIntersectionChecker();
+		labels = createLabelPlacer(5).place(instructions.getInstructions(),
+				textIntersectionChecker);
 
 		if (drawTextBoxes) {
 			layerTextBoxes = new Layer("text-boxes");
@@ -121,7 +119,8 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 			// Also draw a rectangle around the query bounding box
 			Geometry queryBox = new GeometryFactory()
 					.toGeometry(bbox.toEnvelope());
-			Geometry box = transformer.transform(queryBox);
+			Geometry box = new CoordinateGeometryTransformer(mercatorImage)
+					.transform(queryBox);
 
 			Path path = JtsToPath.convert("bounding-box", FillRule.EVEN_ODD,
 					box);
@@ -143,7 +142,7 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 			List<Geometry> geometries)
 	{
 		for (Geometry area : geometries) {
-			Geometry transformed = transformer.transform(area);
+			Geometry transformed = geometryTransformer.transform(area);
 			Path path = JtsToPath.convert(idFactory.nextId(), FillRule.EVEN_ODD,
 					transformed);
 			layer.getObjects().add(path);
@@ -164,7 +163,7 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 		} else if (style instanceof DashedWayStyle) {
 			render(svg, (DashedWayStyle) style, strings);
 		} else if (style instanceof TextWayStyle) {
-			render(svg, (TextWayStyle) style, strings);
+			render(svg, labels.get(wi));
 		}
 	}
 
@@ -172,7 +171,7 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 			List<LineString> strings)
 	{
 		for (LineString string : strings) {
-			Geometry transformed = transformer.transform(string);
+			Geometry transformed = geometryTransformer.transform(string);
 			Path path = JtsToPath.convert(idFactory.nextId(), FillRule.EVEN_ODD,
 					transformed);
 			layer.getObjects().add(path);
@@ -195,7 +194,7 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 		DashArrays.scale(dash, scaleLines);
 
 		for (LineString string : strings) {
-			Geometry transformed = transformer.transform(string);
+			Geometry transformed = geometryTransformer.transform(string);
 			Path path = JtsToPath.convert(idFactory.nextId(), FillRule.EVEN_ODD,
 					transformed);
 			layer.getObjects().add(path);
@@ -212,7 +211,7 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 			List<LineString> strings)
 	{
 		for (LineString string : strings) {
-			Geometry transformed = transformer.transform(string);
+			Geometry transformed = geometryTransformer.transform(string);
 			Path path = JtsToPath.convert(idFactory.nextId(), FillRule.EVEN_ODD,
 					transformed);
 			layer.getObjects().add(path);
@@ -223,7 +222,7 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 		}
 
 		for (LineString string : strings) {
-			Geometry transformed = transformer.transform(string);
+			Geometry transformed = geometryTransformer.transform(string);
 			Path path = JtsToPath.convert(idFactory.nextId(), FillRule.EVEN_ODD,
 					transformed);
 			layer.getObjects().add(path);
@@ -234,52 +233,19 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 		}
 	}
 
-	private void render(SvgFile svg, TextWayStyle style,
-			List<LineString> strings)
+	private void render(SvgFile svg, List<PlacedLabel> labels)
 	{
-		for (LineString string : strings) {
-			String name = renderingData.getName(string);
-			if (name == null) {
-				continue;
-			}
-			renderLabel(svg, string, name, style);
+		for (PlacedLabel label : labels) {
+			renderLabel(svg, label);
 		}
 	}
 
-	private void renderLabel(SvgFile svg, LineString string, String label,
-			TextWayStyle style)
+	private void renderLabel(SvgFile svg, PlacedLabel label)
 	{
-		Path2D path = Jts2Awt.getPath(string, mercatorImage);
-		LineString stringImage = (LineString) new CoordinateGeometryTransformer(
-				mercatorImage).transform(string);
-
-		double padding = 5;
-
-		int fontSize = (int) (style.getSize() * scaleText + 0.5);
-		Font font = new Font(style.getFontName(), Font.PLAIN, fontSize);
-
-		float pathLength = AwtTextUtil.measurePathLength(path);
-		double textLength = AwtTextUtil.getTextWidth(font, label);
-		double paddedTextLength = textLength + 2 * padding;
-
-		if (paddedTextLength > pathLength) {
-			return;
-		}
-
-		double offset = (pathLength - paddedTextLength) / 2;
-
-		BoolResult isReverse = new BoolResult();
-		float[][] boxes = TextUtil.createTextBoxes(stringImage, offset,
-				paddedTextLength, fontSize, isReverse);
-
-		if (!textIntersectionChecker.isValid(boxes)) {
-			return;
-		}
-
-		textIntersectionChecker.add(boxes);
+		TextWayStyle style = label.getStyle();
 
 		if (drawTextBoxes) {
-			for (float[] box : boxes) {
+			for (float[] box : label.getBoxes()) {
 				Polygon polygon = GeneralRectangle.createPolygon(box);
 				Path p = JtsToPath.convert(idFactory.nextId(),
 						FillRule.EVEN_ODD, polygon);
@@ -290,15 +256,7 @@ public class InkscapeConfigMapRenderer extends BaseConfigMapRenderer
 			}
 		}
 
-		TextPath line = AwtTextUtil.createLine(path, (float) paddedTextLength,
-				(float) offset);
-		Path2D p = line.getPath();
-
-		if (isReverse.value) {
-			p = AwtTextUtil.reverse(p);
-		}
-
-		Shape shape = AwtTextUtil.createStrokedShape(p, font, label);
+		Shape shape = label.getShape();
 
 		Path labelPath1 = ShapeToPath.convert(idFactory.nextId(),
 				FillRule.EVEN_ODD, shape);
@@ -0,0 +1,367 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.operation.linemerge.LineMerger;
+
+import de.topobyte.jgs.transform.CoordinateTransformer;
+import de.topobyte.osmocrat.rendering.config.instructions.Instruction;
+import de.topobyte.osmocrat.rendering.config.instructions.WayInstruction;
+import de.topobyte.osmocrat.rendering.config.instructions.ways.TextWayStyle;
+import de.topobyte.osmocrat.text.TextIntersectionChecker;
+import de.topobyte.osmocrat.text.awt.ArcLengthPath;
+import de.topobyte.osmocrat.text.awt.AwtTextUtil;
+import de.topobyte.osmocrat.text.awt.TextMeasurement;
+import de.topobyte.osmocrat.text.awt.TextMeasurementCache;
+
+/**
+ * Decides which labels to draw and where, in three phases:
+ *
+ * <ol>
+ * <li>Since OSM splits streets into many ways, the named ways of each label
+ * instruction are grouped by name and connected ways with the same name are
+ * merged into longer lines. Then candidates are generated for all lines, in
+ * parallel. Each candidate has a few positions along its line, the center
+ * first, each with the boxes the label would occupy there.</li>
+ * <li>Collisions are resolved sequentially in order of priority, looking at
+ * the boxes only: labels with larger fonts first, which usually belong to
+ * more important roads, then labels on longer ways, then by name. Each
+ * candidate gets the first of its positions that is still free.</li>
+ * <li>The glyph shapes are built for the accepted labels only, in parallel.
+ * </li>
+ * </ol>
+ *
+ * Unlike placing labels greedily in data order, the result mostly does not
+ * depend on the order of the ways within the rendering data. Only candidates
+ * with the same font size, path length and name are ordered as in the data.
+ *
+ * The parallel phases run on the common pool, whose threads do not see
+ * interrupts of the calling thread, so they check whether the calling thread
+ * has been interrupted themselves and skip the remaining work if so.
+ */
+public class LabelPlacer
+{
+
+	private static class Candidate
+	{
+
+		private final int order;
+		private final Instruction instruction;
+		private final TextWayStyle style;
+		private final LineString string;
+		private final String name;
+
+		private TextMeasurement measurement;
+		private int fontSize;
+		private float pathLength;
+		private ArcLengthPath[] lines;
+		private float[][][] boxes;
+
+		private int chosen = -1;
+		private PlacedLabel label;
+
+		public Candidate(int order, Instruction instruction,
+				TextWayStyle style, LineString string, String name)
+		{
+			this.order = order;
+			this.instruction = instruction;
+			this.style = style;
+			this.string = string;
+			this.name = name;
+		}
+
+	}
+
+	private static class Group
+	{
+
+		private final Instruction instruction;
+		private final TextWayStyle style;
+		private final String name;
+		private List<LineString> strings = new ArrayList<>();
+
+		public Group(Instruction instruction, TextWayStyle style, String name)
+		{
+			this.instruction = instruction;
+			this.style = style;
+			this.name = name;
+		}
+
+	}
+
+	private static final Comparator<Candidate> PRIORITY = Comparator
+			.comparingInt((Candidate c) -> -c.fontSize)
+			.thenComparingDouble(c -> -c.pathLength)
+			.thenComparing(c -> c.name).thenComparingInt(c -> c.order);
+
+	private CoordinateTransformer transformer;
+	private RenderingDataSource renderingData;
+	private TextMeasurementCache textMeasurementCache;
+	private float scaleText;
+	private double padding;
+
+	private int positions = 3;
+	private boolean mergeLines = true;
+	private boolean parallel = true;
+
+	/**
+	 * @param transformer
+	 *            maps the coordinates of the rendering data to image
+	 *            coordinates.
+	 * @param padding
+	 *            the space to keep free before and after the text of each
+	 *            label, in image coordinates.
+	 */
+	public LabelPlacer(CoordinateTransformer transformer,
+			RenderingDataSource renderingData,
+			TextMeasurementCache textMeasurementCache, float scaleText,
+			double padding)
+	{
+		this.transformer = transformer;
+		this.renderingData = renderingData;
+		this.textMeasurementCache = textMeasurementCache;
+		this.scaleText = scaleText;
+		this.padding = padding;
+	}
+
+	public int getPositions()
+	{
+		return positions;
+	}
+
+	/**
+	 * Set the number of positions along a way to try for its label.
+	 */
+	public void setPositions(int positions)
+	{
+		this.positions = Math.max(1, positions);
+	}
+
+	public boolean isMergeLines()
+	{
+		return mergeLines;
+	}
+
+	/**
+	 * Set whether to merge connected ways with the same name into longer
+	 * lines before placing labels along them.
+	 */
+	public void setMergeLines(boolean mergeLines)
+	{
+		this.mergeLines = mergeLines;
+	}
+
+	public boolean isParallel()
+	{
+		return parallel;
+	}
+
+	public void setParallel(boolean parallel)
+	{
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Place the labels of all label instructions among the specified ones.
+	 * Placement stops early if the current thread gets interrupted.
+	 *
+	 * @param checker
+	 *            an empty checker used to resolve collisions.
+	 * @return the placed labels for each label instruction, in the order of
+	 *         the ways they belong to in the rendering data.
+	 */
+	public Map<Instruction, List<PlacedLabel>> place(
+			List<Instruction> instructions, TextIntersectionChecker checker)
+	{
+		Map<Instruction, List<PlacedLabel>> labels = new HashMap<>();
+		Thread caller = Thread.currentThread();
+
+		// Group the named ways of each label instruction by name, keeping the
+		// order in which the names first appear
+		List<Group> groups = new ArrayList<>();
+		for (Instruction instruction : instructions) {
+			if (!(instruction instanceof WayInstruction)) {
+				continue;
+			}
+			WayInstruction wi = (WayInstruction) instruction;
+			if (!(wi.getStyle() instanceof TextWayStyle)) {
+				continue;
+			}
+			TextWayStyle style = (TextWayStyle) wi.getStyle();
+			labels.put(instruction, new ArrayList<>());
+			Map<String, Group> byName = new LinkedHashMap<>();
+			for (LineString string : renderingData.getWays(instruction)) {
+				String name = renderingData.getName(string);
+				if (name == null) {
+					continue;
+				}
+				Group group = byName.get(name);
+				if (group == null) {
+					group = new Group(instruction, style, name);
+					byName.put(name, group);
+				}
+				group.strings.add(string);
+			}
+			groups.addAll(byName.values());
+		}
+
+		// Phase 1: merged lines, candidate positions and their boxes
+		if (mergeLines) {
+			range(groups.size()).forEach(i -> {
+				if (!caller.isInterrupted()) {
+					merge(groups.get(i));
+				}
+			});
+		}
+		if (caller.isInterrupted()) {
+			return labels;
+		}
+		List<Candidate> candidates = new ArrayList<>();
+		for (Group group : groups) {
+			for (LineString string : group.strings) {
+				candidates.add(new Candidate(candidates.size(),
+						group.instruction, group.style, string, group.name));
+			}
+		}
+		range(candidates.size()).forEach(i -> {
+			if (!caller.isInterrupted()) {
+				createPositions(candidates.get(i));
+			}
+		});
+		if (caller.isInterrupted()) {
+			return labels;
+		}
+
+		// Phase 2: resolve collisions by priority, with boxes only
+		List<Candidate> accepted = new ArrayList<>();
+		Candidate[] byPriority = candidates.stream()
+				.filter(c -> c.lines != null).toArray(Candidate[]::new);
+		Arrays.sort(byPriority, PRIORITY);
+		for (Candidate candidate : byPriority) {
+			for (int k = 0; k < candidate.boxes.length; k++) {
+				float[][] boxes = candidate.boxes[k];
+				if (checker.isValid(boxes)) {
+					checker.add(boxes);
+					candidate.chosen = k;
+					accepted.add(candidate);
+					break;
+				}
+			}
+		}
+		if (caller.isInterrupted()) {
+			return labels;
+		}
+
+		// Phase 3: glyph shapes for the accepted labels
+		range(accepted.size()).forEach(i -> {
+			if (!caller.isInterrupted()) {
+				createLabel(accepted.get(i));
+			}
+		});
+		if (caller.isInterrupted()) {
+			return labels;
+		}
+
+		accepted.sort(Comparator.comparingInt(c -> c.order));
+		for (Candidate candidate : accepted) {
+			labels.get(candidate.instruction).add(candidate.label);
+		}
+		return labels;
+	}
+
+	private static void merge(Group group)
+	{
+		if (group.strings.size() < 2) {
+			return;
+		}
+		LineMerger merger = new LineMerger();
+		merger.add(group.strings);
+		@SuppressWarnings("unchecked")
+		Collection<LineString> merged = merger.getMergedLineStrings();
+		group.strings = new ArrayList<>(merged);
+	}
+
+	private IntStream range(int size)
+	{
+		IntStream range = IntStream.range(0, size);
+		return parallel ? range.parallel() : range;
+	}
+
+	private void createPositions(Candidate candidate)
+	{
+		ArcLengthPath path = ArcLengthPath.create(candidate.string,
+				transformer);
+
+		TextWayStyle style = candidate.style;
+		int fontSize = (int) (style.getSize() * scaleText + 0.5);
+		TextMeasurement measurement = textMeasurementCache
+				.get(style.getFontName(), fontSize, candidate.name);
+
+		float pathLength = path.getLength();
+		double paddedTextLength = measurement.getWidth() + 2 * padding;
+		if (paddedTextLength > pathLength) {
+			return;
+		}
+
+		// Try the center first, then positions further and further away
+		// from it on alternating sides
+		double slack = pathLength - paddedTextLength;
+		int n = slack > 0 ? positions : 1;
+		ArcLengthPath[] lines = new ArcLengthPath[n];
+		float[][][] boxes = new float[n][][];
+		for (int k = 0; k < n; k++) {
+			int step = (k + 1) / 2;
+			int side = k % 2 == 1 ? 1 : -1;
+			double position = 0.5 + side * step / (double) (n + 1);
+			lines[k] = path.subPath((float) (slack * position),
+					(float) paddedTextLength);
+			boxes[k] = lines[k].createTextBoxes(fontSize);
+		}
+
+		candidate.measurement = measurement;
+		candidate.fontSize = fontSize;
+		candidate.pathLength = pathLength;
+		candidate.lines = lines;
+		candidate.boxes = boxes;
+	}
+
+	private void createLabel(Candidate candidate)
+	{
+		ArcLengthPath line = candidate.lines[candidate.chosen];
+		if (line.isReverseX()) {
+			line = line.reverse();
+		}
+		Shape shape = AwtTextUtil.createStrokedShape(line,
+				candidate.measurement);
+		candidate.label = new PlacedLabel(candidate.style, shape,
+				candidate.boxes[candidate.chosen]);
+	}
+
+}
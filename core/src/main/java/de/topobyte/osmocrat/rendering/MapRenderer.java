@@ -58,11 +58,16 @@ import de.topobyte.osm4j.core.resolve.EntityFinder;
 import de.topobyte.osm4j.core.resolve.EntityFinders;
 import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
 import de.topobyte.osm4j.core.resolve.EntityNotFoundStrategy;
-import de.topobyte.osm4j.geometry.RegionBuilder;
-import de.topobyte.osm4j.geometry.RegionBuilderResult;
-import de.topobyte.osm4j.geometry.WayBuilder;
-import de.topobyte.osm4j.geometry.WayBuilderResult;
 
+/**
+ * A panel that renders buildings and streets with their names.
+ *
+ * The map is rendered on a background thread using a
+ * {@link BackgroundRenderer}, first as a quick preview and then in full
+ * quality. The geometry is built on the same thread before the first image is
+ * rendered, so creating the panel does not block the event dispatch thread.
+ * The panel stays empty until the geometry is available.
+ */
 public class MapRenderer extends JPanel
 {
 
@@ -94,36 +99,68 @@ public class MapRenderer extends JPanel
 
 	// The data set will be used as entity provider when building geometries
 	private InMemoryListDataSet data;
-
-	// We build the geometries to be rendered during construction and store them
-	// in these fields so that we don't have to recompute everything when
-	// rendering.
+	// If available, way nodes are resolved through this store
+	private NodeCoordinateStore nodes;
+	// If available, entities outside the bounding box are skipped with these
+	// way boxes before building their geometry
+	private WayEnvelopes wayEnvelopes;
+
+	// We build the geometries to be rendered once, before rendering the first
+	// image, and store them in these fields so that we don't have to
+	// recompute everything when rendering. They are only accessed on the
+	// render thread.
+	private boolean built = false;
 	private List<Geometry> buildings = new ArrayList<>();
 	private List<LineString> streets = new ArrayList<>();
 	private Map<LineString, String> names = new HashMap<>();
 
+	private BackgroundRenderer backgroundRenderer;
+
 	public MapRenderer(BBox bbox, MercatorImage mercatorImage,
 			InMemoryListDataSet data)
+	{
+		this(bbox, mercatorImage, data, null, null);
+	}
+
+	public MapRenderer(BBox bbox, MercatorImage mercatorImage,
+			InMemoryListDataSet data, NodeCoordinateStore nodes,
+			WayEnvelopes wayEnvelopes)
 	{
 		this.bbox = bbox;
 		this.mercatorImage = mercatorImage;
 		this.data = data;
+		this.nodes = nodes;
+		this.wayEnvelopes = wayEnvelopes;
 
-		// When the panel's size changes, define a new MercatorImage and trigger
-		// a repaint on our panel
+		backgroundRenderer = new BackgroundRenderer(this, cBackground);
+
+		// When the panel's size changes, define a new MercatorImage and render
+		// the map again
 		addComponentListener(new ComponentAdapter() {
 
 			@Override
 			public void componentResized(ComponentEvent e)
 			{
 				refreshMercatorImage();
-				repaint();
+				render();
 			}
 
 		});
+	}
 
+	/*
+	 * Build the geometry unless that has happened already. Called on the
+	 * render thread. The build is not cancelled by new render requests, as
+	 * they would have to start it all over again.
+	 */
+	private void prepare()
+	{
+		if (built) {
+			return;
+		}
 		System.out.println("building rendering data...");
 		buildRenderingData();
+		built = true;
 		System.out.println("done");
 	}
 
@@ -138,6 +175,8 @@ public class MapRenderer extends JPanel
 		// We use this to find all way members of relations.
 		EntityFinder wayFinder = EntityFinders.create(data,
 				EntityNotFoundStrategy.IGNORE);
+		EntityGeometryBuilder geometryBuilder = new EntityGeometryBuilder(
+				data, nodes);
 
 		Envelope envelope = bbox.toEnvelope();
 
@@ -146,7 +185,11 @@ public class MapRenderer extends JPanel
 		for (OsmRelation relation : data.getRelations()) {
 			Map<String, String> tags = OsmModelUtil.getTagsAsMap(relation);
 			if (tags.containsKey("building")) {
-				MultiPolygon area = getPolygon(relation);
+				if (wayEnvelopes != null
+						&& !wayEnvelopes.intersects(relation, envelope)) {
+					continue;
+				}
+				MultiPolygon area = geometryBuilder.getPolygon(relation);
 				if (area == null) {
 					continue;
 				}
@@ -169,7 +212,11 @@ public class MapRenderer extends JPanel
 			}
 			Map<String, String> tags = OsmModelUtil.getTagsAsMap(way);
 			if (tags.containsKey("building")) {
-				MultiPolygon area = getPolygon(way);
+				if (wayEnvelopes != null
+						&& !wayEnvelopes.intersects(way, envelope)) {
+					continue;
+				}
+				MultiPolygon area = geometryBuilder.getPolygon(way);
 				if (area == null) {
 					continue;
 				}
@@ -189,8 +236,12 @@ public class MapRenderer extends JPanel
 			if (highway == null) {
 				continue;
 			}
+			if (wayEnvelopes != null
+					&& !wayEnvelopes.intersects(way, envelope)) {
+				continue;
+			}
 
-			Collection<LineString> paths = getLine(way);
+			Collection<LineString> paths = geometryBuilder.getLine(way);
 
 			if (!validHighways.contains(highway)) {
 				continue;
@@ -223,30 +274,77 @@ public class MapRenderer extends JPanel
 		mercatorImage = new MercatorImage(bbox, getWidth(), getHeight());
 	}
 
+	private void render()
+	{
+		// The mercator image gets replaced when the size changes, so the
+		// render thread works with the one current at the time of the request
+		MercatorImage mercatorImage = this.mercatorImage;
+		backgroundRenderer.render(getWidth(), getHeight(), this::prepare,
+				(image, preview) -> {
+					Graphics2D g = image.createGraphics();
+					paint(g, mercatorImage, preview);
+					g.dispose();
+				});
+	}
+
 	@Override
 	protected void paintComponent(Graphics graphics)
 	{
 		super.paintComponent(graphics);
-		Graphics2D g = (Graphics2D) graphics;
-		GraphicsUtil.useAntialiasing(g, true);
+		backgroundRenderer.paint(graphics, getWidth(), getHeight());
+	}
+
+	/**
+	 * Paint the map. The preview leaves out antialiasing, labels, street
+	 * outlines and features smaller than a pixel and simplifies the streets.
+	 * Painting stops early if the current thread gets interrupted.
+	 */
+	private void paint(Graphics2D g, MercatorImage mercatorImage,
+			boolean preview)
+	{
+		GraphicsUtil.useAntialiasing(g, !preview);
 
 		// Fill the background
 		g.setColor(cBackground);
-		g.fillRect(0, 0, getWidth(), getHeight());
+		g.fillRect(0, 0, mercatorImage.getWidth(), mercatorImage.getHeight());
 
 		// First render buildings
 		g.setColor(cBuildings);
 		for (Geometry building : buildings) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			if (preview && PreviewPaths.isTiny(building, mercatorImage)) {
+				continue;
+			}
 			Shape polygon = Jts2Awt.toShape(building, mercatorImage);
 			g.fill(polygon);
 		}
 
+		if (preview) {
+			g.setColor(cStreetForeground);
+			g.setStroke(new BasicStroke(widthStreetForeground));
+			for (LineString street : streets) {
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				if (PreviewPaths.isTiny(street, mercatorImage)) {
+					continue;
+				}
+				g.draw(PreviewPaths.getPath(street, mercatorImage));
+			}
+			return;
+		}
+
 		// First pass of street rendering: outlines
 		g.setColor(cStreetBackground);
 		g.setStroke(new BasicStroke(widthStreetBackground,
 				BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
 
 		for (LineString street : streets) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
 			Path2D path = Jts2Awt.getPath(street, mercatorImage);
 			g.draw(path);
 		}
@@ -257,6 +355,9 @@ public class MapRenderer extends JPanel
 				BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
 
 		for (LineString street : streets) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
 			Path2D path = Jts2Awt.getPath(street, mercatorImage);
 			g.draw(path);
 		}
@@ -266,6 +367,9 @@ public class MapRenderer extends JPanel
 		g.setColor(cStreetText);
 
 		for (LineString street : streets) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
 			String name = names.get(street);
 			if (name == null) {
 				continue;
@@ -334,42 +438,4 @@ public class MapRenderer extends JPanel
 		}
 	}
 
-	private WayBuilder wayBuilder = new WayBuilder();
-	private RegionBuilder regionBuilder = new RegionBuilder();
-
-	private Collection<LineString> getLine(OsmWay way)
-	{
-		List<LineString> results = new ArrayList<>();
-		try {
-			WayBuilderResult lines = wayBuilder.build(way, data);
-			results.addAll(lines.getLineStrings());
-			if (lines.getLinearRing() != null) {
-				results.add(lines.getLinearRing());
-			}
-		} catch (Throwable e) {
-			// ignore
-		}
-		return results;
-	}
-
-	private MultiPolygon getPolygon(OsmWay way)
-	{
-		try {
-			RegionBuilderResult region = regionBuilder.build(way, data);
-			return region.getMultiPolygon();
-		} catch (Throwable e) {
-			return null;
-		}
-	}
-
-	private MultiPolygon getPolygon(OsmRelation relation)
-	{
-		try {
-			RegionBuilderResult region = regionBuilder.build(relation, data);
-			return region.getMultiPolygon();
-		} catch (Throwable e) {
-			return null;
-		}
-	}
-
 }
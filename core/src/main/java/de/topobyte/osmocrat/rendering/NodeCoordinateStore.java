@@ -0,0 +1,124 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osm4j.core.model.iface.OsmNode;
+
+/**
+ * A compact id -> coordinate lookup for nodes.
+ *
+ * Node ids are kept in a sorted long array and coordinates in two int arrays
+ * as fixed-point values with a precision of 10^-7 degrees, which is the
+ * precision OSM stores coordinates with. Lookups are binary searches over the
+ * id array. Instances are immutable and safe for concurrent use.
+ */
+public class NodeCoordinateStore
+{
+
+	private static final double SCALE = 1e7;
+
+	private final long[] ids;
+	private final int[] lons;
+	private final int[] lats;
+
+	public NodeCoordinateStore(InMemoryListDataSet data)
+	{
+		this(data.getNodes());
+	}
+
+	public NodeCoordinateStore(List<OsmNode> nodes)
+	{
+		int size = nodes.size();
+		ids = new long[size];
+		lons = new int[size];
+		lats = new int[size];
+
+		boolean sorted = true;
+		for (int i = 0; i < size; i++) {
+			OsmNode node = nodes.get(i);
+			ids[i] = node.getId();
+			lons[i] = toFixed(node.getLongitude());
+			lats[i] = toFixed(node.getLatitude());
+			if (i > 0 && ids[i] < ids[i - 1]) {
+				sorted = false;
+			}
+		}
+
+		if (!sorted) {
+			sort();
+		}
+	}
+
+	private void sort()
+	{
+		int[] order = IdSorting.sort(ids);
+
+		int[] unsortedLons = lons.clone();
+		int[] unsortedLats = lats.clone();
+		for (int i = 0; i < order.length; i++) {
+			int k = order[i];
+			lons[i] = unsortedLons[k];
+			lats[i] = unsortedLats[k];
+		}
+	}
+
+	private static int toFixed(double degrees)
+	{
+		return (int) Math.round(degrees * SCALE);
+	}
+
+	public int size()
+	{
+		return ids.length;
+	}
+
+	/**
+	 * @return the index of the node with the specified id or -1 if there is no
+	 *         such node.
+	 */
+	public int indexOf(long id)
+	{
+		int index = Arrays.binarySearch(ids, id);
+		return index < 0 ? -1 : index;
+	}
+
+	public boolean contains(long id)
+	{
+		return indexOf(id) >= 0;
+	}
+
+	public long getId(int index)
+	{
+		return ids[index];
+	}
+
+	public double getLongitude(int index)
+	{
+		return lons[index] / SCALE;
+	}
+
+	public double getLatitude(int index)
+	{
+		return lats[index] / SCALE;
+	}
+
+}
@@ -39,6 +39,13 @@ import de.topobyte.mercator.image.MercatorImage;
 import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
 import de.topobyte.osm4j.core.model.iface.OsmNode;
 
+/**
+ * A panel that renders the nodes of a data set as dots.
+ *
+ * The map is rendered on a background thread using a
+ * {@link BackgroundRenderer}, first as a quick preview and then in full
+ * quality.
+ */
 public class OverviewRenderer extends JPanel
 {
 
@@ -57,6 +64,11 @@ public class OverviewRenderer extends JPanel
 
 	private InMemoryListDataSet data;
 
+	// The preview only renders a sample of about this many nodes
+	private int previewNodes = 100000;
+
+	private BackgroundRenderer backgroundRenderer;
+
 	public OverviewRenderer(BBox bbox, MercatorImage mercatorImage,
 			InMemoryListDataSet data)
 	{
@@ -64,15 +76,17 @@ public class OverviewRenderer extends JPanel
 		this.mercatorImage = mercatorImage;
 		this.data = data;
 
-		// When the panel's size changes, define a new MercatorImage and trigger
-		// a repaint on our panel
+		backgroundRenderer = new BackgroundRenderer(this, cBackground);
+
+		// When the panel's size changes, define a new MercatorImage and render
+		// the map again
 		addComponentListener(new ComponentAdapter() {
 
 			@Override
 			public void componentResized(ComponentEvent e)
 			{
 				refreshMercatorImage();
-				repaint();
+				render();
 			}
 
 		});
@@ -83,30 +97,56 @@ public class OverviewRenderer extends JPanel
 		mercatorImage = new MercatorImage(bbox, getWidth(), getHeight());
 	}
 
+	private void render()
+	{
+		// The mercator image gets replaced when the size changes, so the
+		// render thread works with the one current at the time of the request
+		MercatorImage mercatorImage = this.mercatorImage;
+		backgroundRenderer.render(getWidth(), getHeight(),
+				(image, preview) -> {
+					Graphics2D g = image.createGraphics();
+					paint(g, mercatorImage, preview);
+					g.dispose();
+				});
+	}
+
 	@Override
 	protected void paintComponent(Graphics graphics)
 	{
 		super.paintComponent(graphics);
-		Graphics2D g = (Graphics2D) graphics;
-		GraphicsUtil.useAntialiasing(g, true);
+		backgroundRenderer.paint(graphics, getWidth(), getHeight());
+	}
 
+	/**
+	 * Paint the map. The preview leaves out antialiasing and only renders an
+	 * evenly spaced sample of the nodes. Painting stops early if the current
+	 * thread gets interrupted.
+	 */
+	private void paint(Graphics2D g, MercatorImage mercatorImage,
+			boolean preview)
+	{
 		// Fill the background
 		g.setColor(cBackground);
-		g.fillRect(0, 0, getWidth(), getHeight());
+		g.fillRect(0, 0, mercatorImage.getWidth(), mercatorImage.getHeight());
 
 		// Render nodes
 		g.setColor(cNodes);
 
 		GraphicsUtil.useAntialiasing(g, false);
 		List<OsmNode> nodes = data.getNodes();
-		for (OsmNode node : nodes) {
+		int step = preview ? Math.max(1, nodes.size() / previewNodes) : 1;
+		for (int i = 0; i < nodes.size(); i += step) {
+			if (Thread.currentThread().isInterrupted()) {
+				return;
+			}
+			OsmNode node = nodes.get(i);
 			double x = mercatorImage.getX(node.getLongitude());
 			double y = mercatorImage.getY(node.getLatitude());
 			Rectangle2D rect = new Rectangle2D.Double(x, y, 1, 1);
 			g.draw(rect);
 		}
 
-		GraphicsUtil.useAntialiasing(g, true);
+		GraphicsUtil.useAntialiasing(g, !preview);
 		// Also draw a rectangle around the query bounding box
 		Geometry queryBox = new GeometryFactory().toGeometry(bbox.toEnvelope());
 		Shape shape = Jts2Awt.toShape(queryBox, mercatorImage);
@@ -0,0 +1,75 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+
+import de.topobyte.osmocrat.rendering.config.instructions.ways.TextWayStyle;
+
+/**
+ * A label whose position has been decided, ready to be drawn.
+ */
+public class PlacedLabel
+{
+
+	private TextWayStyle style;
+	private Shape shape;
+	private float[][] boxes;
+	private Rectangle2D bounds;
+
+	/**
+	 * @param style
+	 *            the style to draw the label with.
+	 * @param shape
+	 *            the outline of the label's text in image coordinates.
+	 * @param boxes
+	 *            the boxes that the label occupies.
+	 */
+	public PlacedLabel(TextWayStyle style, Shape shape, float[][] boxes)
+	{
+		this.style = style;
+		this.shape = shape;
+		this.boxes = boxes;
+		bounds = shape.getBounds2D();
+	}
+
+	public TextWayStyle getStyle()
+	{
+		return style;
+	}
+
+	public Shape getShape()
+	{
+		return shape;
+	}
+
+	public float[][] getBoxes()
+	{
+		return boxes;
+	}
+
+	/**
+	 * Get the bounds of the label's text, not including its outline.
+	 */
+	public Rectangle2D getBounds()
+	{
+		return bounds;
+	}
+
+}
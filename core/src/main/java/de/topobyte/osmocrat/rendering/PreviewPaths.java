@@ -0,0 +1,79 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.awt.geom.Path2D;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+
+import de.topobyte.jgs.transform.CoordinateTransformer;
+
+/**
+ * Cheap geometry simplification for quick preview renderings.
+ */
+public class PreviewPaths
+{
+
+	/**
+	 * Test whether the specified geometry covers less than a pixel in each
+	 * direction in image coordinates.
+	 */
+	public static boolean isTiny(Geometry geometry, CoordinateTransformer t)
+	{
+		Envelope envelope = geometry.getEnvelopeInternal();
+		double width = Math.abs(
+				t.getX(envelope.getMaxX()) - t.getX(envelope.getMinX()));
+		double height = Math.abs(
+				t.getY(envelope.getMaxY()) - t.getY(envelope.getMinY()));
+		return width < 1 && height < 1;
+	}
+
+	/**
+	 * Convert the specified line string to a path in image coordinates,
+	 * dropping vertices that are less than a pixel away from the previously
+	 * added vertex. The last vertex is always kept.
+	 */
+	public static Path2D getPath(LineString string, CoordinateTransformer t)
+	{
+		Path2D path = new Path2D.Double();
+		CoordinateSequence coordinates = string.getCoordinateSequence();
+		int n = coordinates.size();
+		if (n == 0) {
+			return path;
+		}
+		double lastX = t.getX(coordinates.getX(0));
+		double lastY = t.getY(coordinates.getY(0));
+		path.moveTo(lastX, lastY);
+		for (int i = 1; i < n; i++) {
+			double x = t.getX(coordinates.getX(i));
+			double y = t.getY(coordinates.getY(i));
+			if (i < n - 1 && Math.abs(x - lastX) < 1
+					&& Math.abs(y - lastY) < 1) {
+				continue;
+			}
+			path.lineTo(x, y);
+			lastX = x;
+			lastY = y;
+		}
+		return path;
+	}
+
+}
@@ -0,0 +1,85 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import de.topobyte.jgs.transform.CoordinateTransformer;
+import de.topobyte.mercator.image.MercatorImage;
+
+/**
+ * Maps Web Mercator meters to the image coordinates of a
+ * {@link MercatorImage}.
+ *
+ * A Mercator image is a scaled and translated Mercator projection, hence this
+ * mapping is a simple scale and offset per axis that we derive once from the
+ * image instead of evaluating the projection for every coordinate.
+ */
+public class ProjectedImageTransformer implements CoordinateTransformer
+{
+
+	private double scaleX;
+	private double offsetX;
+	private double scaleY;
+	private double offsetY;
+
+	public ProjectedImageTransformer(MercatorImage mercatorImage)
+	{
+		// Two reference points per axis, far apart for good accuracy
+		double lon1 = -180, lon2 = 180;
+		double lat1 = -80, lat2 = 80;
+
+		double x1 = WebMercator.x(lon1), x2 = WebMercator.x(lon2);
+		double y1 = WebMercator.y(lat1), y2 = WebMercator.y(lat2);
+
+		scaleX = (mercatorImage.getX(lon2) - mercatorImage.getX(lon1))
+				/ (x2 - x1);
+		offsetX = mercatorImage.getX(lon1) - scaleX * x1;
+		scaleY = (mercatorImage.getY(lat2) - mercatorImage.getY(lat1))
+				/ (y2 - y1);
+		offsetY = mercatorImage.getY(lat1) - scaleY * y1;
+	}
+
+	@Override
+	public double getX(double x)
+	{
+		return scaleX * x + offsetX;
+	}
+
+	@Override
+	public double getY(double y)
+	{
+		return scaleY * y + offsetY;
+	}
+
+	/**
+	 * Get the number of image pixels per meter along the x axis.
+	 */
+	public double getScaleX()
+	{
+		return scaleX;
+	}
+
+	/**
+	 * Get the number of image pixels per meter along the y axis, which is
+	 * negative since image coordinates increase southwards.
+	 */
+	public double getScaleY()
+	{
+		return scaleY;
+	}
+
+}
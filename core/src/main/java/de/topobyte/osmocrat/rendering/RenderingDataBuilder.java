@@ -24,8 +24,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.MultiPolygon;
 import org.slf4j.Logger;
@@ -33,21 +38,19 @@ import org.slf4j.LoggerFactory;
 
 import de.topobyte.mercator.image.MercatorImage;
 import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osm4j.core.model.iface.OsmEntity;
 import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmTag;
 import de.topobyte.osm4j.core.model.iface.OsmWay;
-import de.topobyte.osm4j.core.model.util.OsmModelUtil;
 import de.topobyte.osm4j.core.resolve.EntityFinder;
 import de.topobyte.osm4j.core.resolve.EntityFinders;
 import de.topobyte.osm4j.core.resolve.EntityNotFoundException;
 import de.topobyte.osm4j.core.resolve.EntityNotFoundStrategy;
-import de.topobyte.osm4j.geometry.RegionBuilder;
-import de.topobyte.osm4j.geometry.RegionBuilderResult;
-import de.topobyte.osm4j.geometry.WayBuilder;
-import de.topobyte.osm4j.geometry.WayBuilderResult;
 import de.topobyte.osmocrat.rendering.config.RenderInstructions;
 import de.topobyte.osmocrat.rendering.config.instructions.AreaInstruction;
 import de.topobyte.osmocrat.rendering.config.instructions.Instructions;
 import de.topobyte.osmocrat.rendering.config.instructions.WayInstruction;
+import de.topobyte.osmocrat.rendering.config.selector.SelectorIndex;
 
 public class RenderingDataBuilder
 {
@@ -58,8 +61,34 @@ public class RenderingDataBuilder
 	private InMemoryListDataSet data;
 	private RenderInstructions instructions;
 
+	// If available, way nodes are resolved through this store
+	private NodeCoordinateStore nodes = null;
+	// If available, entities outside the image are skipped based on these
+	// way boxes before building their geometry. Computing them costs a pass
+	// over the whole data set, so they only pay off when shared among many
+	// builds for the same data set and are never computed here.
+	private WayEnvelopes wayEnvelopes = null;
+
+	// Number of threads to build geometries with. With more than one thread,
+	// ways and relations are processed in chunks of chunkSize entities.
+	private int threads = 1;
+	private int chunkSize = 4096;
+
+	// Whether to store geometry in Web Mercator meters
+	private boolean projected = false;
+
 	private CachedRenderingDataSource renderingData = new CachedRenderingDataSource();
 
+	private GeometryCounters counters = new GeometryCounters();
+
+	// The region of interest in geographic coordinates and in the
+	// coordinates of the geometry we build
+	private Envelope geoEnvelope;
+	private Envelope envelope;
+	private SelectorIndex<AreaInstruction> areaIndex;
+	private SelectorIndex<WayInstruction> wayIndex;
+	private Map<AreaInstruction, Set<OsmWay>> usedRelationWays;
+
 	public RenderingDataBuilder(MercatorImage mercatorImage, InMemoryListDataSet data,
 			RenderInstructions instructions)
 	{
@@ -68,11 +97,86 @@ public class RenderingDataBuilder
 		this.instructions = instructions;
 	}
 
+	/**
+	 * Create a builder that builds geometry for the whole data set, without
+	 * restricting it to the visible region of an image.
+	 */
+	public RenderingDataBuilder(InMemoryListDataSet data,
+			RenderInstructions instructions)
+	{
+		this(null, data, instructions);
+	}
+
+	public NodeCoordinateStore getNodeCoordinates()
+	{
+		return nodes;
+	}
+
+	public void setNodeCoordinates(NodeCoordinateStore nodes)
+	{
+		this.nodes = nodes;
+	}
+
+	public WayEnvelopes getWayEnvelopes()
+	{
+		return wayEnvelopes;
+	}
+
+	/**
+	 * Set the way boxes to skip entities outside of the image with. They
+	 * must have been computed for the ways of this builder's data set.
+	 * Without them, only the envelopes of built geometries are checked.
+	 */
+	public void setWayEnvelopes(WayEnvelopes wayEnvelopes)
+	{
+		this.wayEnvelopes = wayEnvelopes;
+	}
+
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	public void setThreads(int threads)
+	{
+		this.threads = threads;
+	}
+
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize)
+	{
+		this.chunkSize = chunkSize;
+	}
+
+	public boolean isProjected()
+	{
+		return projected;
+	}
+
+	/**
+	 * Store geometry projected to Web Mercator meters (see
+	 * {@link WebMercator}), so that renderers only need to apply a linear
+	 * transformation when painting.
+	 */
+	public void setProjected(boolean projected)
+	{
+		this.projected = projected;
+	}
+
 	public CachedRenderingDataSource getRenderingData()
 	{
 		return renderingData;
 	}
 
+	public GeometryCounters getCounters()
+	{
+		return counters;
+	}
+
 	public void buildRenderingData()
 	{
 		// We create area geometries from relations and ways. Ways that are
@@ -80,12 +184,24 @@ public class RenderingDataBuilder
 		// however rendering them independently will fill the polygon holes they
 		// are cutting out of the relations. Hence we store the ways found in
 		// area relations to skip them later on when working on the ways.
-		Map<AreaInstruction, Set<OsmWay>> usedRelationWays = new HashMap<>();
+		usedRelationWays = new HashMap<>();
 		// We use this to find all way members of relations.
 		EntityFinder wayFinder = EntityFinders.create(data,
 				EntityNotFoundStrategy.IGNORE);
 
-		Envelope envelope = mercatorImage.getVisibleBoundingBox().toEnvelope();
+		// Each build produces new rendering data
+		renderingData = new CachedRenderingDataSource();
+		renderingData.setProjected(projected);
+		counters = new GeometryCounters();
+
+		// Without an image we build everything
+		geoEnvelope = null;
+		envelope = null;
+		if (mercatorImage != null) {
+			geoEnvelope = mercatorImage.getVisibleBoundingBox().toEnvelope();
+			envelope = projected ? WebMercator.project(geoEnvelope)
+					: geoEnvelope;
+		}
 
 		List<WayInstruction> wayInstructions = Instructions
 				.way(instructions.getInstructions());
@@ -101,143 +217,270 @@ public class RenderingDataBuilder
 			renderingData.getWays().put(instruction, new ArrayList<>());
 		}
 
-		logger.info("area relations...");
-		// Collect areas from relation areas...
-		for (OsmRelation relation : data.getRelations()) {
-			Map<String, String> tags = OsmModelUtil.getTagsAsMap(relation);
+		// Compile the selectors so that we find the instructions matching an
+		// entity with one pass over its tags
+		areaIndex = new SelectorIndex<>();
+		for (AreaInstruction instruction : areaInstructions) {
+			areaIndex.add(instruction.getSelector(), instruction);
+		}
+		wayIndex = new SelectorIndex<>();
+		for (WayInstruction instruction : wayInstructions) {
+			wayIndex.add(instruction.getSelector(), instruction);
+		}
+
+		ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		try {
+			logger.info("area relations...");
+			// Collect areas from relation areas. The chunks are merged in
+			// order, so the result does not depend on the number of threads.
+			List<RelationChunk> relationChunks = execute(pool,
+					data.getRelations(), chunk -> buildRelationAreas(chunk));
+			for (RelationChunk chunk : relationChunks) {
+				counters.add(chunk.counters);
+				for (RelationArea relationArea : chunk.areas) {
+					for (AreaInstruction instruction : relationArea.instructions) {
+						renderingData.getAreas().get(instruction)
+								.add(relationArea.area);
+						try {
+							wayFinder.findMemberWays(relationArea.relation,
+									usedRelationWays.get(instruction));
+						} catch (EntityNotFoundException e) {
+							// cannot happen (IGNORE strategy)
+						}
+					}
+				}
+			}
 
-			boolean use = false;
-			for (AreaInstruction instruction : areaInstructions) {
-				if (instruction.getSelector().matches(tags)) {
-					use = true;
-					break;
+			logger.info("area ways and ways...");
+			// ... and also from way areas. Collect ways in the same pass.
+			List<WayChunk> wayChunks = execute(pool, data.getWays(),
+					chunk -> buildWays(chunk));
+			for (WayChunk chunk : wayChunks) {
+				counters.add(chunk.counters);
+				CachedRenderingDataSource part = chunk.renderingData;
+				for (Map.Entry<AreaInstruction, List<Geometry>> entry : part
+						.getAreas().entrySet()) {
+					renderingData.getAreas().get(entry.getKey())
+							.addAll(entry.getValue());
+				}
+				for (Map.Entry<WayInstruction, List<LineString>> entry : part
+						.getWays().entrySet()) {
+					renderingData.getWays().get(entry.getKey())
+							.addAll(entry.getValue());
 				}
+				renderingData.getNames().putAll(part.getNames());
 			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
+		logger.info("geometry: " + counters);
+	}
+
+	private interface ChunkTask<T, R>
+	{
+
+		R run(List<T> chunk);
+
+	}
+
+	private <T, R> List<R> execute(ForkJoinPool pool, List<T> entities,
+			ChunkTask<T, R> task)
+	{
+		List<R> results = new ArrayList<>();
+		if (pool == null) {
+			results.add(task.run(entities));
+			return results;
+		}
 
-			if (!use) {
+		List<Callable<R>> callables = new ArrayList<>();
+		for (int i = 0; i < entities.size(); i += chunkSize) {
+			List<T> chunk = entities.subList(i,
+					Math.min(entities.size(), i + chunkSize));
+			callables.add(() -> task.run(chunk));
+		}
+
+		try {
+			for (Future<R> future : pool.invokeAll(callables)) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while building geometry",
+					e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Error while building geometry",
+					e.getCause());
+		}
+		return results;
+	}
+
+	private static class RelationArea
+	{
+
+		private OsmRelation relation;
+		private MultiPolygon area;
+		private List<AreaInstruction> instructions;
+
+		public RelationArea(OsmRelation relation, MultiPolygon area,
+				List<AreaInstruction> instructions)
+		{
+			this.relation = relation;
+			this.area = area;
+			this.instructions = instructions;
+		}
+
+	}
+
+	private static class RelationChunk
+	{
+
+		private List<RelationArea> areas = new ArrayList<>();
+		private GeometryCounters counters;
+
+	}
+
+	private static class WayChunk
+	{
+
+		private CachedRenderingDataSource renderingData = new CachedRenderingDataSource();
+		private GeometryCounters counters;
+
+	}
+
+	private RelationChunk buildRelationAreas(List<OsmRelation> relations)
+	{
+		// Geometry builders are not thread-safe, use one per chunk
+		EntityGeometryBuilder geometryBuilder = new EntityGeometryBuilder(
+				data, nodes);
+		geometryBuilder.setProjected(projected);
+
+		RelationChunk result = new RelationChunk();
+		result.counters = geometryBuilder.getCounters();
+
+		for (OsmRelation relation : relations) {
+			List<AreaInstruction> matches = areaIndex.lookup(relation);
+			if (matches.isEmpty()) {
 				continue;
 			}
 
-			MultiPolygon area = getPolygon(relation);
+			if (geoEnvelope != null && wayEnvelopes != null
+					&& !wayEnvelopes.intersects(relation, geoEnvelope)) {
+				result.counters.entitySkipped();
+				continue;
+			}
+
+			MultiPolygon area = geometryBuilder.getPolygon(relation);
 			if (area == null) {
 				continue;
 			}
-			if (!envelope.intersects(area.getEnvelopeInternal())) {
+			if (!isVisible(area)) {
 				continue;
 			}
 
-			for (AreaInstruction instruction : areaInstructions) {
-				if (!instruction.getSelector().matches(tags)) {
-					continue;
-				}
-				renderingData.getAreas().get(instruction).add(area);
-				try {
-					wayFinder.findMemberWays(relation,
-							usedRelationWays.get(instruction));
-				} catch (EntityNotFoundException e) {
-					// cannot happen (IGNORE strategy)
-				}
-			}
+			result.areas.add(new RelationArea(relation, area, matches));
 		}
 
-		logger.info("area ways...");
-		// ... and also from way areas
-		for (OsmWay way : data.getWays()) {
-			Map<String, String> tags = OsmModelUtil.getTagsAsMap(way);
-			for (AreaInstruction instruction : areaInstructions) {
-				if (!instruction.getSelector().matches(tags)) {
-					continue;
-				}
+		return result;
+	}
+
+	private WayChunk buildWays(List<OsmWay> ways)
+	{
+		// Geometry builders are not thread-safe, use one per chunk
+		EntityGeometryBuilder geometryBuilder = new EntityGeometryBuilder(
+				data, nodes);
+		geometryBuilder.setProjected(projected);
+
+		WayChunk result = new WayChunk();
+		result.counters = geometryBuilder.getCounters();
+		CachedRenderingDataSource renderingData = result.renderingData;
+
+		for (OsmWay way : ways) {
+			List<AreaInstruction> areaMatches = areaIndex.lookup(way);
+			List<WayInstruction> wayMatches = wayIndex.lookup(way);
+			if (areaMatches.isEmpty() && wayMatches.isEmpty()) {
+				continue;
+			}
+			if (geoEnvelope != null && wayEnvelopes != null
+					&& !wayEnvelopes.intersects(way, geoEnvelope)) {
+				result.counters.entitySkipped();
+				continue;
+			}
+
+			for (AreaInstruction instruction : areaMatches) {
 				Set<OsmWay> usedWays = usedRelationWays.get(instruction);
 				if (usedWays.contains(way)) {
 					continue;
 				}
 
-				MultiPolygon area = getPolygon(way);
+				MultiPolygon area = geometryBuilder.getPolygon(way);
 				if (area == null) {
 					continue;
 				}
-				if (!envelope.intersects(area.getEnvelopeInternal())) {
+				if (!isVisible(area)) {
 					continue;
 				}
 
-				renderingData.getAreas().get(instruction).add(area);
-			}
-		}
-
-		logger.info("ways...");
-		// Collect ways
-		for (OsmWay way : data.getWays()) {
-			Map<String, String> tags = OsmModelUtil.getTagsAsMap(way);
-
-			for (WayInstruction instruction : wayInstructions) {
-				if (!instruction.getSelector().matches(tags)) {
-					continue;
+				List<Geometry> areas = renderingData.getAreas()
+						.get(instruction);
+				if (areas == null) {
+					areas = new ArrayList<>();
+					renderingData.getAreas().put(instruction, areas);
 				}
+				areas.add(area);
+			}
 
-				Collection<LineString> paths = getLine(way);
+			for (WayInstruction instruction : wayMatches) {
+				Collection<LineString> paths = geometryBuilder.getLine(way);
 
 				List<LineString> strings = renderingData.getWays()
 						.get(instruction);
+				if (strings == null) {
+					strings = new ArrayList<>();
+					renderingData.getWays().put(instruction, strings);
+				}
 
 				for (LineString path : paths) {
-					if (!envelope.intersects(path.getEnvelopeInternal())) {
+					if (!isVisible(path)) {
 						continue;
 					}
 					strings.add(path);
 				}
 
 				// If it has a name, store it for labeling
-				String name = tags.get("name");
+				String name = getTag(way, "name");
 				if (name == null) {
 					continue;
 				}
 				for (LineString path : paths) {
-					if (!envelope.intersects(path.getEnvelopeInternal())) {
+					if (!isVisible(path)) {
 						continue;
 					}
 					renderingData.getNames().put(path, name);
 				}
 			}
 		}
-	}
 
-	protected WayBuilder wayBuilder = new WayBuilder();
-	protected RegionBuilder regionBuilder = new RegionBuilder();
-
-	protected Collection<LineString> getLine(OsmWay way)
-	{
-		List<LineString> results = new ArrayList<>();
-		try {
-			WayBuilderResult lines = wayBuilder.build(way, data);
-			results.addAll(lines.getLineStrings());
-			if (lines.getLinearRing() != null) {
-				results.add(lines.getLinearRing());
-			}
-		} catch (Throwable e) {
-			// ignore
-		}
-		return results;
+		return result;
 	}
 
-	protected MultiPolygon getPolygon(OsmWay way)
+	private boolean isVisible(Geometry geometry)
 	{
-		try {
-			RegionBuilderResult region = regionBuilder.build(way, data);
-			return region.getMultiPolygon();
-		} catch (Throwable e) {
-			return null;
-		}
+		return envelope == null
+				|| envelope.intersects(geometry.getEnvelopeInternal());
 	}
 
-	protected MultiPolygon getPolygon(OsmRelation relation)
+	private static String getTag(OsmEntity entity, String key)
 	{
-		try {
-			RegionBuilderResult region = regionBuilder.build(relation, data);
-			return region.getMultiPolygon();
-		} catch (Throwable e) {
-			return null;
+		for (int i = 0; i < entity.getNumberOfTags(); i++) {
+			OsmTag tag = entity.getTag(i);
+			if (tag.getKey().equals(key)) {
+				return tag.getValue();
+			}
 		}
+		return null;
 	}
 
 }
@@ -0,0 +1,506 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+import de.topobyte.osmocrat.rendering.config.instructions.AreaInstruction;
+import de.topobyte.osmocrat.rendering.config.instructions.Instruction;
+import de.topobyte.osmocrat.rendering.config.instructions.WayInstruction;
+import de.topobyte.osmocrat.rendering.config.selector.KeySelector;
+import de.topobyte.osmocrat.rendering.config.selector.Selector;
+import de.topobyte.osmocrat.rendering.config.selector.TagSelector;
+
+/**
+ * A persistent cache for rendering data of whole data sets.
+ *
+ * Cache files are named after a fingerprint of the input file (its path, size
+ * and modification time), of the selectors of the render instructions and of
+ * whether coordinates are projected, which are all that the geometry depends
+ * on. Changing styles therefore does not invalidate the cache, while changing
+ * the input or what is selected does. Instructions with selectors other than
+ * {@link TagSelector} and {@link KeySelector} cannot be fingerprinted and are
+ * never cached.
+ *
+ * A cache file consists of a table of all distinct geometries with their
+ * packed coordinates, a table of label names and one block per instruction
+ * that refers to its geometries and names by their index in these tables.
+ * Geometries shared by several instructions are therefore stored once and
+ * are identical objects again after loading, as they were when built. Files
+ * are written and read sequentially, so their size is not limited.
+ */
+public class RenderingDataCache
+{
+
+	final static Logger logger = LoggerFactory
+			.getLogger(RenderingDataCache.class);
+
+	private static final int MAGIC = 0x4f534d52; // "OSMR"
+	private static final int VERSION = 3;
+
+	private static final byte KIND_AREAS = 1;
+	private static final byte KIND_WAYS = 2;
+
+	private static final byte TYPE_LINE_STRING = 1;
+	private static final byte TYPE_LINEAR_RING = 2;
+	private static final byte TYPE_POLYGON = 3;
+	private static final byte TYPE_MULTI_POLYGON = 4;
+
+	private Path directory;
+
+	private GeometryFactory factory = new GeometryFactory();
+
+	public RenderingDataCache(Path directory)
+	{
+		this.directory = directory;
+	}
+
+	public Path getDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Get the file that rendering data for the specified input and
+	 * instructions is cached in.
+	 *
+	 * @return the cache file or null if the instructions cannot be
+	 *         fingerprinted.
+	 */
+	public Path getCacheFile(Path input, RenderInstructions instructions,
+			boolean projected) throws IOException
+	{
+		byte[] fingerprint = fingerprint(input, instructions, projected);
+		if (fingerprint == null) {
+			return null;
+		}
+		return file(fingerprint);
+	}
+
+	private Path file(byte[] fingerprint)
+	{
+		return directory.resolve(hex(fingerprint) + ".rdc");
+	}
+
+	/**
+	 * Load previously stored rendering data.
+	 *
+	 * @return the rendering data or null if nothing has been stored for the
+	 *         specified input, instructions and projection, or if the cache
+	 *         file could not be read.
+	 */
+	public CachedRenderingDataSource load(Path input,
+			RenderInstructions instructions, boolean projected)
+			throws IOException
+	{
+		byte[] fingerprint = fingerprint(input, instructions, projected);
+		if (fingerprint == null) {
+			return null;
+		}
+		Path file = file(fingerprint);
+		if (!Files.exists(file)) {
+			return null;
+		}
+
+		try (DataInputStream data = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file)))) {
+			return read(data, fingerprint, instructions);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("unable to read cache file " + file + ": " + e, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Store the specified rendering data, which must have been built for the
+	 * whole data set from the specified input with the specified instructions.
+	 *
+	 * @return whether the data has been stored.
+	 */
+	public boolean store(Path input, RenderInstructions instructions,
+			CachedRenderingDataSource renderingData) throws IOException
+	{
+		byte[] fingerprint = fingerprint(input, instructions,
+				renderingData.isProjected());
+		if (fingerprint == null) {
+			return false;
+		}
+		Files.createDirectories(directory);
+		Path file = file(fingerprint);
+		Path tmp = Files.createTempFile(directory, "rendering", ".tmp");
+
+		try {
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				write(output, fingerprint, instructions, renderingData);
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+		return true;
+	}
+
+	private void write(DataOutputStream output, byte[] fingerprint,
+			RenderInstructions instructions,
+			CachedRenderingDataSource renderingData) throws IOException
+	{
+		// Assign ids to distinct geometries and names, so that geometries
+		// used by several instructions are stored once
+		List<Geometry> geometries = new ArrayList<>();
+		Map<Geometry, Integer> geometryIds = new IdentityHashMap<>();
+		List<String> names = new ArrayList<>();
+		Map<String, Integer> nameIds = new HashMap<>();
+
+		List<Instruction> list = instructions.getInstructions();
+		for (Instruction instruction : list) {
+			if (instruction instanceof AreaInstruction) {
+				List<Geometry> areas = renderingData.getAreas(instruction);
+				if (areas != null) {
+					for (Geometry area : areas) {
+						id(geometryIds, geometries, area);
+					}
+				}
+			} else if (instruction instanceof WayInstruction) {
+				List<LineString> ways = renderingData.getWays(instruction);
+				if (ways != null) {
+					for (LineString way : ways) {
+						id(geometryIds, geometries, way);
+						String name = renderingData.getName(way);
+						if (name != null) {
+							id(nameIds, names, name);
+						}
+					}
+				}
+			}
+		}
+
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.write(fingerprint);
+		output.writeBoolean(renderingData.isProjected());
+
+		output.writeInt(geometries.size());
+		for (Geometry geometry : geometries) {
+			writeGeometry(output, geometry);
+		}
+
+		output.writeInt(names.size());
+		for (String name : names) {
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+
+		for (int i = 0; i < list.size(); i++) {
+			Instruction instruction = list.get(i);
+			if (instruction instanceof AreaInstruction) {
+				List<Geometry> areas = renderingData.getAreas(instruction);
+				if (areas == null) {
+					continue;
+				}
+				output.writeInt(i);
+				output.writeByte(KIND_AREAS);
+				output.writeInt(areas.size());
+				for (Geometry area : areas) {
+					output.writeInt(geometryIds.get(area));
+				}
+			} else if (instruction instanceof WayInstruction) {
+				List<LineString> ways = renderingData.getWays(instruction);
+				if (ways == null) {
+					continue;
+				}
+				output.writeInt(i);
+				output.writeByte(KIND_WAYS);
+				output.writeInt(ways.size());
+				for (LineString way : ways) {
+					String name = renderingData.getName(way);
+					output.writeInt(geometryIds.get(way));
+					output.writeInt(name == null ? -1 : nameIds.get(name));
+				}
+			}
+		}
+		// End of blocks
+		output.writeInt(-1);
+	}
+
+	private static <T> void id(Map<T, Integer> ids, List<T> values, T value)
+	{
+		if (!ids.containsKey(value)) {
+			ids.put(value, values.size());
+			values.add(value);
+		}
+	}
+
+	private void writeGeometry(DataOutputStream output, Geometry geometry)
+			throws IOException
+	{
+		if (geometry instanceof LinearRing) {
+			output.writeByte(TYPE_LINEAR_RING);
+			writeCoordinates(output, (LineString) geometry);
+		} else if (geometry instanceof LineString) {
+			output.writeByte(TYPE_LINE_STRING);
+			writeCoordinates(output, (LineString) geometry);
+		} else if (geometry instanceof Polygon) {
+			output.writeByte(TYPE_POLYGON);
+			writePolygon(output, (Polygon) geometry);
+		} else if (geometry instanceof MultiPolygon) {
+			output.writeByte(TYPE_MULTI_POLYGON);
+			output.writeInt(geometry.getNumGeometries());
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				writePolygon(output, (Polygon) geometry.getGeometryN(i));
+			}
+		} else {
+			throw new IOException("Unsupported geometry type: "
+					+ geometry.getGeometryType());
+		}
+	}
+
+	private void writePolygon(DataOutputStream output, Polygon polygon)
+			throws IOException
+	{
+		output.writeInt(polygon.getNumInteriorRing());
+		writeCoordinates(output, polygon.getExteriorRing());
+		for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+			writeCoordinates(output, polygon.getInteriorRingN(i));
+		}
+	}
+
+	private void writeCoordinates(DataOutputStream output, LineString string)
+			throws IOException
+	{
+		CoordinateSequence sequence = string.getCoordinateSequence();
+		output.writeInt(sequence.size());
+		for (int i = 0; i < sequence.size(); i++) {
+			output.writeDouble(sequence.getX(i));
+			output.writeDouble(sequence.getY(i));
+		}
+	}
+
+	private CachedRenderingDataSource read(DataInputStream input,
+			byte[] fingerprint, RenderInstructions instructions)
+			throws IOException
+	{
+		if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+			throw new IOException("Not a rendering data cache file");
+		}
+		byte[] stored = new byte[fingerprint.length];
+		input.readFully(stored);
+		if (!Arrays.equals(stored, fingerprint)) {
+			throw new IOException("Fingerprint mismatch");
+		}
+		boolean projected = input.readBoolean();
+
+		Geometry[] geometries = new Geometry[input.readInt()];
+		for (int i = 0; i < geometries.length; i++) {
+			geometries[i] = readGeometry(input);
+		}
+
+		String[] names = new String[input.readInt()];
+		for (int i = 0; i < names.length; i++) {
+			byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			names[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		CachedRenderingDataSource renderingData = new CachedRenderingDataSource();
+		renderingData.setProjected(projected);
+		List<Instruction> list = instructions.getInstructions();
+
+		while (true) {
+			int index = input.readInt();
+			if (index < 0) {
+				break;
+			}
+			byte kind = input.readByte();
+			int count = input.readInt();
+
+			Instruction instruction = list.get(index);
+			if (kind == KIND_AREAS
+					&& instruction instanceof AreaInstruction) {
+				List<Geometry> areas = new ArrayList<>(count);
+				for (int k = 0; k < count; k++) {
+					areas.add(geometries[input.readInt()]);
+				}
+				renderingData.getAreas().put((AreaInstruction) instruction,
+						areas);
+			} else if (kind == KIND_WAYS
+					&& instruction instanceof WayInstruction) {
+				List<LineString> ways = new ArrayList<>(count);
+				for (int k = 0; k < count; k++) {
+					LineString way = (LineString) geometries[input
+							.readInt()];
+					int name = input.readInt();
+					ways.add(way);
+					if (name >= 0) {
+						renderingData.getNames().put(way, names[name]);
+					}
+				}
+				renderingData.getWays().put((WayInstruction) instruction,
+						ways);
+			} else {
+				throw new IOException("Unexpected block for instruction "
+						+ index);
+			}
+		}
+
+		return renderingData;
+	}
+
+	private Geometry readGeometry(DataInputStream input) throws IOException
+	{
+		byte type = input.readByte();
+		switch (type) {
+		case TYPE_LINE_STRING:
+			return factory.createLineString(readCoordinates(input));
+		case TYPE_LINEAR_RING:
+			return factory.createLinearRing(readCoordinates(input));
+		case TYPE_POLYGON:
+			return readPolygon(input);
+		case TYPE_MULTI_POLYGON:
+			Polygon[] polygons = new Polygon[input.readInt()];
+			for (int i = 0; i < polygons.length; i++) {
+				polygons[i] = readPolygon(input);
+			}
+			return factory.createMultiPolygon(polygons);
+		default:
+			throw new IOException("Unknown geometry type: " + type);
+		}
+	}
+
+	private Polygon readPolygon(DataInputStream input) throws IOException
+	{
+		LinearRing[] holes = new LinearRing[input.readInt()];
+		LinearRing shell = factory.createLinearRing(readCoordinates(input));
+		for (int i = 0; i < holes.length; i++) {
+			holes[i] = factory.createLinearRing(readCoordinates(input));
+		}
+		return factory.createPolygon(shell, holes);
+	}
+
+	private CoordinateSequence readCoordinates(DataInputStream input)
+			throws IOException
+	{
+		// Read the coordinates in one go and decode them in bulk
+		double[] coordinates = new double[input.readInt() * 2];
+		byte[] bytes = new byte[coordinates.length * 8];
+		input.readFully(bytes);
+		ByteBuffer.wrap(bytes).asDoubleBuffer().get(coordinates);
+		return new PackedCoordinateSequence.Double(coordinates, 2, 0);
+	}
+
+	/**
+	 * Compute the fingerprint for the specified input, instructions and
+	 * projection.
+	 *
+	 * @return the fingerprint or null if the instructions contain selectors
+	 *         that cannot be fingerprinted.
+	 */
+	public static byte[] fingerprint(Path input,
+			RenderInstructions instructions, boolean projected)
+			throws IOException
+	{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-256 not available", e);
+		}
+
+		StringBuilder buffer = new StringBuilder();
+		buffer.append(VERSION).append('\n');
+		buffer.append(input.toRealPath()).append('\n');
+		buffer.append(Files.size(input)).append('\n');
+		buffer.append(Files.getLastModifiedTime(input).toMillis())
+				.append('\n');
+		buffer.append(projected ? "projected" : "unprojected").append('\n');
+
+		for (Instruction instruction : instructions.getInstructions()) {
+			Selector selector;
+			if (instruction instanceof AreaInstruction) {
+				buffer.append("area ");
+				selector = ((AreaInstruction) instruction).getSelector();
+			} else if (instruction instanceof WayInstruction) {
+				buffer.append("way ");
+				selector = ((WayInstruction) instruction).getSelector();
+			} else {
+				buffer.append("other\n");
+				continue;
+			}
+			if (selector instanceof TagSelector) {
+				TagSelector tagSelector = (TagSelector) selector;
+				buffer.append("tag ").append(escape(tagSelector.getKey()))
+						.append(' ').append(escape(tagSelector.getValue()));
+			} else if (selector instanceof KeySelector) {
+				KeySelector keySelector = (KeySelector) selector;
+				buffer.append("key ").append(escape(keySelector.getKey()));
+			} else {
+				return null;
+			}
+			buffer.append('\n');
+		}
+
+		return digest
+				.digest(buffer.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String escape(String string)
+	{
+		return string.replace("\\", "\\\\").replace(" ", "\\ ")
+				.replace("\n", "\\n");
+	}
+
+	private static String hex(byte[] bytes)
+	{
+		StringBuilder buffer = new StringBuilder();
+		for (byte b : bytes) {
+			buffer.append(String.format("%02x", b));
+		}
+		return buffer.toString();
+	}
+
+}
@@ -33,4 +33,10 @@ public interface RenderingDataSource
 
 	String getName(LineString string);
 
+	/**
+	 * Whether geometries are in Web Mercator meters (see {@link WebMercator})
+	 * instead of geographic coordinates.
+	 */
+	boolean isProjected();
+
 }
@@ -0,0 +1,208 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.locationtech.jts.geom.Envelope;
+
+import de.topobyte.osm4j.core.model.iface.EntityType;
+import de.topobyte.osm4j.core.model.iface.OsmRelation;
+import de.topobyte.osm4j.core.model.iface.OsmRelationMember;
+import de.topobyte.osm4j.core.model.iface.OsmWay;
+
+/**
+ * Bounding boxes of ways, computed directly from the coordinates of their
+ * nodes without building any geometry. They can be used to cheaply reject
+ * ways and relations that cannot intersect a region of interest before their
+ * geometry is built.
+ *
+ * Boxes only cover nodes that can be resolved, so they always contain any
+ * geometry that can be built from the way. Ways without any resolvable node
+ * get an empty box that intersects nothing. Instances are immutable and safe
+ * for concurrent use.
+ */
+public class WayEnvelopes
+{
+
+	private final long[] ids;
+	// minX, minY, maxX, maxY for each way
+	private final double[] boxes;
+
+	public WayEnvelopes(List<OsmWay> ways, NodeCoordinateStore nodes)
+	{
+		int size = ways.size();
+		ids = new long[size];
+		boxes = new double[size * 4];
+
+		boolean sorted = true;
+		for (int i = 0; i < size; i++) {
+			OsmWay way = ways.get(i);
+			ids[i] = way.getId();
+			computeBox(way, nodes, i * 4);
+			if (i > 0 && ids[i] < ids[i - 1]) {
+				sorted = false;
+			}
+		}
+
+		if (!sorted) {
+			sort();
+		}
+	}
+
+	private void computeBox(OsmWay way, NodeCoordinateStore nodes, int offset)
+	{
+		double minX = Double.NaN, minY = Double.NaN;
+		double maxX = Double.NaN, maxY = Double.NaN;
+		for (int i = 0; i < way.getNumberOfNodes(); i++) {
+			int index = nodes.indexOf(way.getNodeId(i));
+			if (index < 0) {
+				continue;
+			}
+			double x = nodes.getLongitude(index);
+			double y = nodes.getLatitude(index);
+			if (Double.isNaN(minX)) {
+				minX = maxX = x;
+				minY = maxY = y;
+				continue;
+			}
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		boxes[offset] = minX;
+		boxes[offset + 1] = minY;
+		boxes[offset + 2] = maxX;
+		boxes[offset + 3] = maxY;
+	}
+
+	private void sort()
+	{
+		int[] order = IdSorting.sort(ids);
+
+		double[] unsortedBoxes = boxes.clone();
+		for (int i = 0; i < order.length; i++) {
+			System.arraycopy(unsortedBoxes, order[i] * 4, boxes, i * 4, 4);
+		}
+	}
+
+	/**
+	 * @return the index of the way with the specified id or -1 if there is no
+	 *         such way.
+	 */
+	public int indexOf(long id)
+	{
+		int index = Arrays.binarySearch(ids, id);
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * @return the bounding box of the way with the specified id, null if
+	 *         there is no such way and an empty envelope if none of its nodes
+	 *         could be resolved.
+	 */
+	public Envelope getEnvelope(long id)
+	{
+		int index = indexOf(id);
+		if (index < 0) {
+			return null;
+		}
+		int offset = index * 4;
+		if (Double.isNaN(boxes[offset])) {
+			return new Envelope();
+		}
+		return new Envelope(boxes[offset], boxes[offset + 2],
+				boxes[offset + 1], boxes[offset + 3]);
+	}
+
+	/**
+	 * Test whether the specified way may intersect the specified envelope.
+	 * Ways that are not known to this instance are considered to intersect.
+	 */
+	public boolean intersects(OsmWay way, Envelope envelope)
+	{
+		int index = indexOf(way.getId());
+		if (index < 0) {
+			return true;
+		}
+		return intersects(index * 4, envelope);
+	}
+
+	/**
+	 * Test whether the area built from the specified relation may intersect
+	 * the specified envelope, based on the union of the boxes of its member
+	 * ways. Relations with relation members are considered to intersect.
+	 */
+	public boolean intersects(OsmRelation relation, Envelope envelope)
+	{
+		double minX = Double.NaN, minY = Double.NaN;
+		double maxX = Double.NaN, maxY = Double.NaN;
+		for (int i = 0; i < relation.getNumberOfMembers(); i++) {
+			OsmRelationMember member = relation.getMember(i);
+			if (member.getType() == EntityType.Relation) {
+				return true;
+			}
+			if (member.getType() != EntityType.Way) {
+				continue;
+			}
+			int index = indexOf(member.getId());
+			if (index < 0) {
+				continue;
+			}
+			int offset = index * 4;
+			if (Double.isNaN(boxes[offset])) {
+				continue;
+			}
+			if (Double.isNaN(minX)) {
+				minX = boxes[offset];
+				minY = boxes[offset + 1];
+				maxX = boxes[offset + 2];
+				maxY = boxes[offset + 3];
+				continue;
+			}
+			minX = Math.min(minX, boxes[offset]);
+			minY = Math.min(minY, boxes[offset + 1]);
+			maxX = Math.max(maxX, boxes[offset + 2]);
+			maxY = Math.max(maxY, boxes[offset + 3]);
+		}
+		if (Double.isNaN(minX)) {
+			return false;
+		}
+		return intersects(minX, minY, maxX, maxY, envelope);
+	}
+
+	private boolean intersects(int offset, Envelope envelope)
+	{
+		double minX = boxes[offset];
+		if (Double.isNaN(minX)) {
+			return false;
+		}
+		return intersects(minX, boxes[offset + 1], boxes[offset + 2],
+				boxes[offset + 3], envelope);
+	}
+
+	private static boolean intersects(double minX, double minY, double maxX,
+			double maxY, Envelope envelope)
+	{
+		return !(minX > envelope.getMaxX() || maxX < envelope.getMinX()
+				|| minY > envelope.getMaxY() || maxY < envelope.getMinY());
+	}
+
+}
@@ -0,0 +1,92 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+import de.topobyte.jgs.transform.CoordinateTransformer;
+import de.topobyte.jts.utils.transform.CoordinateGeometryTransformer;
+
+/**
+ * Conversion between geographic coordinates and spherical Web Mercator
+ * coordinates in meters (EPSG:3857).
+ */
+public class WebMercator
+{
+
+	public static final double EARTH_RADIUS = 6378137;
+
+	// Web Mercator is not defined beyond this latitude
+	public static final double MAX_LATITUDE = 85.0511287798066;
+
+	/**
+	 * A transformer from geographic coordinates to Web Mercator meters.
+	 */
+	public static final CoordinateTransformer PROJECTION = new CoordinateTransformer() {
+
+		@Override
+		public double getX(double lon)
+		{
+			return x(lon);
+		}
+
+		@Override
+		public double getY(double lat)
+		{
+			return y(lat);
+		}
+
+	};
+
+	public static double x(double lon)
+	{
+		return Math.toRadians(lon) * EARTH_RADIUS;
+	}
+
+	public static double y(double lat)
+	{
+		lat = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, lat));
+		return Math.log(Math.tan(Math.PI / 4 + Math.toRadians(lat) / 2))
+				* EARTH_RADIUS;
+	}
+
+	public static double lon(double x)
+	{
+		return Math.toDegrees(x / EARTH_RADIUS);
+	}
+
+	public static double lat(double y)
+	{
+		return Math.toDegrees(2 * Math.atan(Math.exp(y / EARTH_RADIUS))
+				- Math.PI / 2);
+	}
+
+	public static Envelope project(Envelope envelope)
+	{
+		return new Envelope(x(envelope.getMinX()), x(envelope.getMaxX()),
+				y(envelope.getMinY()), y(envelope.getMaxY()));
+	}
+
+	public static Geometry project(Geometry geometry)
+	{
+		return new CoordinateGeometryTransformer(PROJECTION)
+				.transform(geometry);
+	}
+
+}
@@ -22,6 +22,7 @@ import static de.topobyte.chromaticity.WebColors.GRAY;
 import static de.topobyte.chromaticity.WebColors.WHITE;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import de.topobyte.chromaticity.ColorCode;
@@ -149,6 +150,32 @@ public class Rendering
 		return ri;
 	}
 
+	public static List<String> getStyleNames()
+	{
+		return Arrays.asList("style1", "style2", "style3", "style4");
+	}
+
+	/**
+	 * Get one of the predefined styles by name.
+	 *
+	 * @return the style's instructions or null if there is no such style.
+	 */
+	public static RenderInstructions getStyle(String name)
+	{
+		switch (name) {
+		case "style1":
+			return style1();
+		case "style2":
+			return style2();
+		case "style3":
+			return style3();
+		case "style4":
+			return style4();
+		default:
+			return null;
+		}
+	}
+
 	private static void addWay(RenderInstructions ri, String key, String value,
 			double width, ColorCode color)
 	{
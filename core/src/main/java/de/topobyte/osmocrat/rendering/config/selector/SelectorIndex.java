@@ -0,0 +1,173 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering.config.selector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.topobyte.osm4j.core.model.iface.OsmEntity;
+import de.topobyte.osm4j.core.model.iface.OsmTag;
+import de.topobyte.osm4j.core.model.util.OsmModelUtil;
+
+/**
+ * An index that evaluates the selectors of a list of items against an entity's
+ * tags in a single pass over the entity's tag list.
+ *
+ * {@link TagSelector}s are stored in a key -> value -> items map and
+ * {@link KeySelector}s in a key -> items map, so that each tag of an entity
+ * costs at most two hash lookups, independent of the number of items in the
+ * index. Other selector implementations are evaluated one by one against a
+ * tag map that is only created if such selectors exist.
+ *
+ * Matching items are always returned in the order they have been added to the
+ * index. Instances are safe for concurrent lookups once all items have been
+ * added.
+ */
+public class SelectorIndex<T>
+{
+
+	private static final int[] NONE = new int[0];
+
+	private List<T> items = new ArrayList<>();
+
+	private Map<String, Map<String, int[]>> tagBuckets = new HashMap<>();
+	private Map<String, int[]> keyBuckets = new HashMap<>();
+
+	private List<Selector> otherSelectors = new ArrayList<>();
+	private int[] otherPositions = NONE;
+
+	public void add(Selector selector, T item)
+	{
+		int position = items.size();
+		items.add(item);
+
+		if (selector instanceof TagSelector) {
+			TagSelector tagSelector = (TagSelector) selector;
+			Map<String, int[]> values = tagBuckets.get(tagSelector.getKey());
+			if (values == null) {
+				values = new HashMap<>();
+				tagBuckets.put(tagSelector.getKey(), values);
+			}
+			values.put(tagSelector.getValue(),
+					append(values.get(tagSelector.getValue()), position));
+		} else if (selector instanceof KeySelector) {
+			KeySelector keySelector = (KeySelector) selector;
+			keyBuckets.put(keySelector.getKey(),
+					append(keyBuckets.get(keySelector.getKey()), position));
+		} else {
+			otherSelectors.add(selector);
+			otherPositions = append(otherPositions, position);
+		}
+	}
+
+	public List<T> getItems()
+	{
+		return items;
+	}
+
+	public boolean isEmpty()
+	{
+		return items.isEmpty();
+	}
+
+	/**
+	 * Find all items whose selector matches the tags of the specified entity.
+	 *
+	 * @param entity
+	 *            the entity to evaluate the selectors for.
+	 * @return the matching items in insertion order. This is an empty,
+	 *         immutable list if nothing matches.
+	 */
+	public List<T> lookup(OsmEntity entity)
+	{
+		int[] matches = NONE;
+		int numMatches = 0;
+
+		for (int i = 0; i < entity.getNumberOfTags(); i++) {
+			OsmTag tag = entity.getTag(i);
+			int[] byKey = keyBuckets.get(tag.getKey());
+			if (byKey != null) {
+				matches = ensureCapacity(matches, numMatches + byKey.length);
+				System.arraycopy(byKey, 0, matches, numMatches, byKey.length);
+				numMatches += byKey.length;
+			}
+			Map<String, int[]> values = tagBuckets.get(tag.getKey());
+			if (values == null) {
+				continue;
+			}
+			int[] byTag = values.get(tag.getValue());
+			if (byTag != null) {
+				matches = ensureCapacity(matches, numMatches + byTag.length);
+				System.arraycopy(byTag, 0, matches, numMatches, byTag.length);
+				numMatches += byTag.length;
+			}
+		}
+
+		if (!otherSelectors.isEmpty()) {
+			Map<String, String> tags = OsmModelUtil.getTagsAsMap(entity);
+			for (int i = 0; i < otherSelectors.size(); i++) {
+				if (otherSelectors.get(i).matches(tags)) {
+					matches = ensureCapacity(matches, numMatches + 1);
+					matches[numMatches++] = otherPositions[i];
+				}
+			}
+		}
+
+		if (numMatches == 0) {
+			return Collections.emptyList();
+		}
+
+		// Restore insertion order and drop duplicates, which may occur for
+		// entities that carry the same key more than once.
+		Arrays.sort(matches, 0, numMatches);
+		List<T> results = new ArrayList<>(numMatches);
+		int last = -1;
+		for (int i = 0; i < numMatches; i++) {
+			int position = matches[i];
+			if (position == last) {
+				continue;
+			}
+			results.add(items.get(position));
+			last = position;
+		}
+		return results;
+	}
+
+	private static int[] append(int[] positions, int position)
+	{
+		if (positions == null) {
+			return new int[] { position };
+		}
+		int[] extended = Arrays.copyOf(positions, positions.length + 1);
+		extended[positions.length] = position;
+		return extended;
+	}
+
+	private static int[] ensureCapacity(int[] array, int size)
+	{
+		if (array.length >= size) {
+			return array;
+		}
+		return Arrays.copyOf(array, Math.max(size, array.length * 2));
+	}
+
+}
@@ -0,0 +1,57 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering.tiles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Stores tiles as files in a z/x/y.png directory tree.
+ */
+public class DirectoryTileOutput implements TileOutput
+{
+
+	private Path directory;
+
+	public DirectoryTileOutput(Path directory)
+	{
+		this.directory = directory;
+	}
+
+	public Path getDirectory()
+	{
+		return directory;
+	}
+
+	@Override
+	public void write(int zoom, int x, int y, byte[] data) throws IOException
+	{
+		Path dir = directory.resolve(Integer.toString(zoom))
+				.resolve(Integer.toString(x));
+		Files.createDirectories(dir);
+		Files.write(dir.resolve(y + ".png"), data);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		// nothing to do
+	}
+
+}
@@ -0,0 +1,308 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering.tiles;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores tiles in a single MBTiles (SQLite) file.
+ *
+ * Tiles are handed over to a single writer thread through a bounded queue, so
+ * that any number of render threads can write concurrently. The writer
+ * inserts tiles in large transactions. Tile images are stored once per
+ * distinct content, identified by a hash of their data, which collapses
+ * repeated tiles such as empty background tiles into a single image.
+ *
+ * Once the writer has failed, writing further tiles throws an exception, so
+ * that rendering stops early.
+ */
+public class MBTilesOutput implements TileOutput
+{
+
+	final static Logger logger = LoggerFactory.getLogger(MBTilesOutput.class);
+
+	private static class Tile
+	{
+
+		private int zoom;
+		private int x;
+		private int y;
+		private byte[] data;
+
+		Tile(int zoom, int x, int y, byte[] data)
+		{
+			this.zoom = zoom;
+			this.x = x;
+			this.y = y;
+			this.data = data;
+		}
+
+	}
+
+	// Put into the queue to stop the writer
+	private static final Tile END = new Tile(0, 0, 0, null);
+
+	private Connection connection;
+	private int batchSize = 1000;
+
+	private BlockingQueue<Tile> queue = new ArrayBlockingQueue<>(1024);
+	private Thread writer;
+	private volatile Throwable error = null;
+
+	private Map<String, String> metadata = new LinkedHashMap<>();
+
+	private long numTiles = 0;
+	private long numImages = 0;
+
+	public MBTilesOutput(Path file) throws IOException
+	{
+		try {
+			connection = DriverManager
+					.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+			connection.setAutoCommit(false);
+			createTables();
+			connection.commit();
+		} catch (SQLException e) {
+			throw new IOException("Unable to create MBTiles file " + file, e);
+		}
+
+		metadata.put("name", name(file));
+		metadata.put("format", "png");
+
+		writer = new Thread(this::write, "mbtiles-writer");
+		writer.start();
+	}
+
+	private static String name(Path file)
+	{
+		String name = file.getFileName().toString();
+		if (name.endsWith(".mbtiles")) {
+			name = name.substring(0, name.length() - ".mbtiles".length());
+		}
+		return name;
+	}
+
+	private void createTables() throws SQLException
+	{
+		try (Statement statement = connection.createStatement()) {
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS map"
+					+ " (zoom_level INTEGER, tile_column INTEGER,"
+					+ " tile_row INTEGER, tile_id TEXT)");
+			statement.executeUpdate(
+					"CREATE UNIQUE INDEX IF NOT EXISTS map_index ON map"
+							+ " (zoom_level, tile_column, tile_row)");
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS images"
+					+ " (tile_data BLOB, tile_id TEXT)");
+			statement.executeUpdate(
+					"CREATE UNIQUE INDEX IF NOT EXISTS images_id ON images"
+							+ " (tile_id)");
+			statement.executeUpdate("CREATE VIEW IF NOT EXISTS tiles AS"
+					+ " SELECT map.zoom_level AS zoom_level,"
+					+ " map.tile_column AS tile_column,"
+					+ " map.tile_row AS tile_row,"
+					+ " images.tile_data AS tile_data"
+					+ " FROM map JOIN images ON images.tile_id = map.tile_id");
+			statement.executeUpdate("CREATE TABLE IF NOT EXISTS metadata"
+					+ " (name TEXT, value TEXT)");
+			statement.executeUpdate(
+					"CREATE UNIQUE INDEX IF NOT EXISTS name ON metadata"
+							+ " (name)");
+		}
+	}
+
+	public int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	/**
+	 * Set the number of tiles to insert per transaction. Must be called
+	 * before writing any tiles.
+	 */
+	public void setBatchSize(int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set a metadata value such as name, bounds, minzoom or maxzoom. Values
+	 * are written when closing the output. The name defaults to the name of
+	 * the file without extension.
+	 */
+	public void setMetadata(String name, String value)
+	{
+		metadata.put(name, value);
+	}
+
+	@Override
+	public void write(int zoom, int x, int y, byte[] data) throws IOException
+	{
+		checkError();
+		Tile tile = new Tile(zoom, x, y, data);
+		try {
+			// Wait for space in the queue, but give up once the writer failed
+			while (!queue.offer(tile, 100, TimeUnit.MILLISECONDS)) {
+				checkError();
+				if (!writer.isAlive()) {
+					throw new IOException("Tile writer has stopped");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while queueing tile", e);
+		}
+		// The writer might have failed while the tile was being queued
+		checkError();
+	}
+
+	private void checkError() throws IOException
+	{
+		if (error != null) {
+			throw new IOException("Error while writing tiles", error);
+		}
+	}
+
+	private void write()
+	{
+		String sqlMap = "INSERT OR REPLACE INTO map"
+				+ " (zoom_level, tile_column, tile_row, tile_id)"
+				+ " VALUES (?, ?, ?, ?)";
+		String sqlImage = "INSERT OR IGNORE INTO images"
+				+ " (tile_data, tile_id) VALUES (?, ?)";
+
+		try (PreparedStatement insertMap = connection.prepareStatement(sqlMap);
+				PreparedStatement insertImage = connection
+						.prepareStatement(sqlImage)) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			int inTransaction = 0;
+			while (true) {
+				Tile tile = queue.take();
+				if (tile == END) {
+					break;
+				}
+
+				// Images already stored are ignored by the unique index
+				String id = hex(digest.digest(tile.data));
+				insertImage.setBytes(1, tile.data);
+				insertImage.setString(2, id);
+				numImages += insertImage.executeUpdate();
+
+				// MBTiles uses the TMS scheme with rows counted from south
+				int row = Tiles.numTiles(tile.zoom) - 1 - tile.y;
+				insertMap.setInt(1, tile.zoom);
+				insertMap.setInt(2, tile.x);
+				insertMap.setInt(3, row);
+				insertMap.setString(4, id);
+				insertMap.executeUpdate();
+				numTiles++;
+
+				if (++inTransaction >= batchSize) {
+					connection.commit();
+					inTransaction = 0;
+				}
+			}
+			connection.commit();
+		} catch (InterruptedException e) {
+			error = e;
+		} catch (Throwable e) {
+			error = e;
+			// Keep accepting tiles, so that render threads don't block
+			queue.clear();
+			drain();
+		}
+	}
+
+	private void drain()
+	{
+		try {
+			while (queue.take() != END) {
+				// discard
+			}
+		} catch (InterruptedException e) {
+			// stop draining
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try {
+			// The writer may have stopped already if it was interrupted
+			while (writer.isAlive()
+					&& !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+				// wait for space in the queue
+			}
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing", e);
+		}
+
+		try {
+			if (error == null) {
+				writeMetadata();
+				connection.commit();
+			}
+			connection.close();
+		} catch (SQLException e) {
+			throw new IOException("Error while closing MBTiles file", e);
+		}
+		checkError();
+
+		logger.info(String.format("wrote %d tiles with %d distinct images",
+				numTiles, numImages));
+	}
+
+	private void writeMetadata() throws SQLException
+	{
+		String sql = "INSERT OR REPLACE INTO metadata (name, value)"
+				+ " VALUES (?, ?)";
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			for (Map.Entry<String, String> entry : metadata.entrySet()) {
+				statement.setString(1, entry.getKey());
+				statement.setString(2, entry.getValue());
+				statement.executeUpdate();
+			}
+		}
+	}
+
+	private static String hex(byte[] bytes)
+	{
+		StringBuilder buffer = new StringBuilder();
+		for (byte b : bytes) {
+			buffer.append(String.format("%02x", b));
+		}
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,200 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering.tiles;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A thread-safe in-memory cache for tiles, bounded by the total size of the
+ * tile data and evicting the least recently used tiles first.
+ *
+ * Concurrent requests for a tile that is not cached are coalesced: the tile
+ * is loaded once by the first requester while all others wait for its result.
+ * Tiles can also be loaded in groups, such as all tiles of a meta tile, in
+ * which case requests for any tile of a group that is being loaded wait for
+ * the whole group.
+ */
+public class TileCache
+{
+
+	public interface Loader
+	{
+
+		byte[] load() throws IOException;
+
+	}
+
+	public interface GroupLoader
+	{
+
+		/**
+		 * Load all tiles of a group.
+		 *
+		 * @return a map from tile keys to tile data.
+		 */
+		Map<String, byte[]> load() throws IOException;
+
+	}
+
+	private long maxBytes;
+	private long bytes = 0;
+
+	private LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<>(16,
+			0.75f, true);
+	// Groups being loaded, by group key
+	private Map<String, CompletableFuture<Map<String, byte[]>>> pending = //
+			new HashMap<>();
+
+	private long hits = 0;
+	private long misses = 0;
+	private long coalesced = 0;
+
+	public TileCache(long maxBytes)
+	{
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Get the tile with the specified key, loading it with the specified
+	 * loader if it is neither cached nor being loaded by another thread.
+	 */
+	public byte[] get(String key, Loader loader) throws IOException
+	{
+		return get(key, key,
+				() -> Collections.singletonMap(key, loader.load()));
+	}
+
+	/**
+	 * Get the tile with the specified key, loading the group of tiles with
+	 * the specified group key with the specified loader if the tile is not
+	 * cached and the group is not being loaded by another thread. All tiles
+	 * of the group are put into the cache.
+	 */
+	public byte[] get(String key, String groupKey, GroupLoader loader)
+			throws IOException
+	{
+		CompletableFuture<Map<String, byte[]>> future;
+		boolean load = false;
+		synchronized (this) {
+			byte[] data = tiles.get(key);
+			if (data != null) {
+				hits++;
+				return data;
+			}
+			future = pending.get(groupKey);
+			if (future == null) {
+				future = new CompletableFuture<>();
+				pending.put(groupKey, future);
+				load = true;
+				misses++;
+			} else {
+				coalesced++;
+			}
+		}
+
+		Map<String, byte[]> group = null;
+		if (load) {
+			// Whatever happens while loading, waiting requesters must be
+			// released and the group must not stay pending
+			try {
+				group = loader.load();
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+				throw e;
+			} finally {
+				synchronized (this) {
+					pending.remove(groupKey);
+					if (group != null) {
+						for (Map.Entry<String, byte[]> entry : group
+								.entrySet()) {
+							put(entry.getKey(), entry.getValue());
+						}
+					}
+				}
+			}
+			future.complete(group);
+		} else {
+			try {
+				group = future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for tile", e);
+			} catch (ExecutionException e) {
+				throw new IOException("Error while loading tile",
+						e.getCause());
+			}
+		}
+
+		byte[] data = group.get(key);
+		if (data == null) {
+			throw new IOException("Tile not in its group: " + key);
+		}
+		return data;
+	}
+
+	private void put(String key, byte[] data)
+	{
+		if (data.length > maxBytes) {
+			return;
+		}
+		byte[] previous = tiles.put(key, data);
+		if (previous != null) {
+			bytes -= previous.length;
+		}
+		bytes += data.length;
+
+		Iterator<byte[]> iterator = tiles.values().iterator();
+		while (bytes > maxBytes && iterator.hasNext()) {
+			bytes -= iterator.next().length;
+			iterator.remove();
+		}
+	}
+
+	public synchronized int size()
+	{
+		return tiles.size();
+	}
+
+	public synchronized long getBytes()
+	{
+		return bytes;
+	}
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public synchronized long getCoalesced()
+	{
+		return coalesced;
+	}
+
+}
@@ -0,0 +1,392 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering.tiles;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import org.locationtech.jts.geom.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.topobyte.adt.geo.BBox;
+import de.topobyte.mercator.image.MercatorImage;
+import de.topobyte.osmocrat.rendering.CachedRenderingDataSource;
+import de.topobyte.osmocrat.rendering.GraphicsConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.IndexedRenderingData;
+import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+
+/**
+ * Renders XYZ tile pyramids from rendering data that has been built once for
+ * the whole data set.
+ *
+ * Tiles are rendered concurrently on a work-stealing pool. Each tile is
+ * painted by its own {@link GraphicsConfigMapRenderer} with a view of the
+ * indexed rendering data that covers the tile plus a buffer, so that strokes
+ * of geometry just outside of the tile are drawn up to its edge.
+ *
+ * With a meta tile size larger than 1, blocks of meta tile size x meta tile
+ * size tiles are rendered as one image which is then sliced into tiles. This
+ * shares querying, shape conversion and label placement among the tiles of a
+ * block and avoids cutting labels at tile edges within a block. The default
+ * renders blocks of 8 x 8 tiles.
+ */
+public class TileRenderer
+{
+
+	final static Logger logger = LoggerFactory.getLogger(TileRenderer.class);
+
+	private IndexedRenderingData data;
+	private RenderInstructions instructions;
+
+	private int tileSize = 256;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private float scaleLines = 1;
+	private float scaleText = 1;
+	private Color background = new Color(0xEEEEEE);
+	// Fraction of the tile size to include around each rendered image
+	private double buffer = 0.25;
+	// Number of tiles per side of a meta tile
+	private int metaTileSize = 8;
+
+	public TileRenderer(IndexedRenderingData data,
+			RenderInstructions instructions)
+	{
+		this.data = data;
+		this.instructions = instructions;
+	}
+
+	public int getTileSize()
+	{
+		return tileSize;
+	}
+
+	public void setTileSize(int tileSize)
+	{
+		this.tileSize = tileSize;
+	}
+
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	public void setThreads(int threads)
+	{
+		this.threads = threads;
+	}
+
+	public float getScaleLines()
+	{
+		return scaleLines;
+	}
+
+	public void setScaleLines(float scaleLines)
+	{
+		this.scaleLines = scaleLines;
+	}
+
+	public float getScaleText()
+	{
+		return scaleText;
+	}
+
+	public void setScaleText(float scaleText)
+	{
+		this.scaleText = scaleText;
+	}
+
+	public Color getBackground()
+	{
+		return background;
+	}
+
+	public void setBackground(Color background)
+	{
+		this.background = background;
+	}
+
+	public int getMetaTileSize()
+	{
+		return metaTileSize;
+	}
+
+	public void setMetaTileSize(int metaTileSize)
+	{
+		this.metaTileSize = metaTileSize;
+	}
+
+	public double getBuffer()
+	{
+		return buffer;
+	}
+
+	public void setBuffer(double buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Render all tiles intersecting the specified region on the specified
+	 * zoom levels and pass them to the specified output.
+	 *
+	 * @return the number of tiles rendered.
+	 */
+	public long render(BBox bbox, int minZoom, int maxZoom, TileOutput output)
+			throws IOException
+	{
+		double lonMin = Math.min(bbox.getLon1(), bbox.getLon2());
+		double lonMax = Math.max(bbox.getLon1(), bbox.getLon2());
+		double latMin = Math.min(bbox.getLat1(), bbox.getLat2());
+		double latMax = Math.max(bbox.getLat1(), bbox.getLat2());
+
+		long total = 0;
+		long start = System.currentTimeMillis();
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+				int x1 = Tiles.x(lonMin, zoom);
+				int x2 = Tiles.x(lonMax, zoom);
+				int y1 = Tiles.y(latMax, zoom);
+				int y2 = Tiles.y(latMin, zoom);
+
+				long zoomStart = System.currentTimeMillis();
+				AtomicLong counter = new AtomicLong();
+				TileRange range = new TileRange(zoom, x1, x2, y1, y2);
+				try {
+					pool.invoke(new TileTask(output, counter, range,
+							x1 / metaTileSize, x2 / metaTileSize,
+							y1 / metaTileSize, y2 / metaTileSize));
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+				long count = counter.get();
+				total += count;
+
+				logger.info(String.format("zoom %d: %d tiles, %s", zoom,
+						count, rate(count, zoomStart)));
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		logger.info(String.format("total: %d tiles, %s", total,
+				rate(total, start)));
+		return total;
+	}
+
+	private static String rate(long tiles, long start)
+	{
+		long millis = Math.max(1, System.currentTimeMillis() - start);
+		return String.format("%.1f seconds, %.1f tiles/second", millis / 1000.0,
+				tiles * 1000.0 / millis);
+	}
+
+	private static class TileRange
+	{
+
+		private int zoom;
+		private int x1, x2, y1, y2;
+
+		TileRange(int zoom, int x1, int x2, int y1, int y2)
+		{
+			this.zoom = zoom;
+			this.x1 = x1;
+			this.x2 = x2;
+			this.y1 = y1;
+			this.y2 = y2;
+		}
+
+	}
+
+	/*
+	 * Renders a rectangular range of meta tiles, splitting it in halves until
+	 * single meta tiles are left, so that idle workers can steal large parts
+	 * of the work.
+	 */
+	private class TileTask extends RecursiveAction
+	{
+
+		private static final long serialVersionUID = 1L;
+
+		private TileOutput output;
+		private AtomicLong counter;
+		private TileRange range;
+		private int mx1, mx2, my1, my2;
+
+		TileTask(TileOutput output, AtomicLong counter, TileRange range,
+				int mx1, int mx2, int my1, int my2)
+		{
+			this.output = output;
+			this.counter = counter;
+			this.range = range;
+			this.mx1 = mx1;
+			this.mx2 = mx2;
+			this.my1 = my1;
+			this.my2 = my2;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (mx1 == mx2 && my1 == my2) {
+				try {
+					counter.addAndGet(
+							renderMetaTile(output, range, mx1, my1));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return;
+			}
+			if (mx2 - mx1 >= my2 - my1) {
+				int mid = (mx1 + mx2) / 2;
+				invokeAll(
+						new TileTask(output, counter, range, mx1, mid, my1,
+								my2),
+						new TileTask(output, counter, range, mid + 1, mx2,
+								my1, my2));
+			} else {
+				int mid = (my1 + my2) / 2;
+				invokeAll(
+						new TileTask(output, counter, range, mx1, mx2, my1,
+								mid),
+						new TileTask(output, counter, range, mx1, mx2,
+								mid + 1, my2));
+			}
+		}
+
+	}
+
+	/**
+	 * Render the meta tile that contains the specified tile and pass all of
+	 * its tiles to the specified output.
+	 *
+	 * @return the number of tiles written.
+	 */
+	public int renderMetaTile(int zoom, int x, int y, TileOutput output)
+			throws IOException
+	{
+		int numTiles = Tiles.numTiles(zoom);
+		TileRange range = new TileRange(zoom, 0, numTiles - 1, 0,
+				numTiles - 1);
+		return renderMetaTile(output, range, x / metaTileSize,
+				y / metaTileSize);
+	}
+
+	private int renderMetaTile(TileOutput output, TileRange range, int mx,
+			int my) throws IOException
+	{
+		int zoom = range.zoom;
+		int numTiles = Tiles.numTiles(zoom);
+
+		// Meta tiles are aligned to a grid, so that they are the same for
+		// any requested region, and may be cut at the edge of the world
+		int tx1 = mx * metaTileSize;
+		int ty1 = my * metaTileSize;
+		int tx2 = Math.min(numTiles, tx1 + metaTileSize) - 1;
+		int ty2 = Math.min(numTiles, ty1 + metaTileSize) - 1;
+
+		if (tx1 == tx2 && ty1 == ty2) {
+			output.write(zoom, tx1, ty1, renderTile(zoom, tx1, ty1));
+			return 1;
+		}
+
+		BBox bbox = new BBox(Tiles.lon(tx1, zoom), Tiles.lat(ty1, zoom),
+				Tiles.lon(tx2 + 1, zoom), Tiles.lat(ty2 + 1, zoom));
+		BufferedImage image = renderImage(bbox,
+				(tx2 - tx1 + 1) * tileSize, (ty2 - ty1 + 1) * tileSize);
+
+		// Only write the tiles that have been requested
+		int count = 0;
+		for (int x = Math.max(tx1, range.x1); x <= Math.min(tx2,
+				range.x2); x++) {
+			for (int y = Math.max(ty1, range.y1); y <= Math.min(ty2,
+					range.y2); y++) {
+				BufferedImage tile = image.getSubimage((x - tx1) * tileSize,
+						(y - ty1) * tileSize, tileSize, tileSize);
+				output.write(zoom, x, y, encode(tile));
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Render a single tile.
+	 *
+	 * @return the tile as PNG data.
+	 */
+	public byte[] renderTile(int zoom, int x, int y) throws IOException
+	{
+		BufferedImage image = renderImage(Tiles.bbox(zoom, x, y), tileSize,
+				tileSize);
+		return encode(image);
+	}
+
+	/**
+	 * Render an image of the specified region, which should have the aspect
+	 * ratio of the image in the Mercator projection.
+	 */
+	public BufferedImage renderImage(BBox bbox, int width, int height)
+	{
+		MercatorImage mercatorImage = new MercatorImage(bbox, width, height);
+
+		// The buffer is relative to the tile size, whatever the image size
+		double pixels = buffer * tileSize;
+		Envelope envelope = new Envelope(bbox.toEnvelope());
+		envelope.expandBy(envelope.getWidth() * pixels / width,
+				envelope.getHeight() * pixels / height);
+		CachedRenderingDataSource view = data.getView(envelope);
+
+		GraphicsConfigMapRenderer renderer = new GraphicsConfigMapRenderer(
+				bbox, mercatorImage, instructions, view);
+		renderer.setDrawBoundingBox(false);
+		renderer.setScaleLines(scaleLines);
+		renderer.setScaleText(scaleText);
+
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(background);
+			g.fillRect(0, 0, width, height);
+			renderer.paint(g);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	public static byte[] encode(BufferedImage image) throws IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", baos);
+		return baos.toByteArray();
+	}
+
+}
@@ -0,0 +1,76 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.rendering.tiles;
+
+import de.topobyte.adt.geo.BBox;
+import de.topobyte.osmocrat.rendering.WebMercator;
+
+/**
+ * Conversion between geographic coordinates and the tile numbers of the
+ * common XYZ tiling scheme, where tile (0, 0) is in the north-west corner.
+ */
+public class Tiles
+{
+
+	public static int numTiles(int zoom)
+	{
+		return 1 << zoom;
+	}
+
+	public static double lon(int x, int zoom)
+	{
+		return x / (double) numTiles(zoom) * 360 - 180;
+	}
+
+	public static double lat(int y, int zoom)
+	{
+		double n = Math.PI - 2 * Math.PI * y / numTiles(zoom);
+		return Math.toDegrees(Math.atan(Math.sinh(n)));
+	}
+
+	public static int x(double lon, int zoom)
+	{
+		int x = (int) Math.floor((lon + 180) / 360 * numTiles(zoom));
+		return clamp(x, zoom);
+	}
+
+	public static int y(double lat, int zoom)
+	{
+		lat = Math.max(-WebMercator.MAX_LATITUDE,
+				Math.min(WebMercator.MAX_LATITUDE, lat));
+		double r = Math.toRadians(lat);
+		double n = Math.log(Math.tan(r) + 1 / Math.cos(r));
+		int y = (int) Math.floor((1 - n / Math.PI) / 2 * numTiles(zoom));
+		return clamp(y, zoom);
+	}
+
+	private static int clamp(int tile, int zoom)
+	{
+		return Math.max(0, Math.min(numTiles(zoom) - 1, tile));
+	}
+
+	/**
+	 * Get the region covered by the specified tile.
+	 */
+	public static BBox bbox(int zoom, int x, int y)
+	{
+		return new BBox(lon(x, zoom), lat(y, zoom), lon(x + 1, zoom),
+				lat(y + 1, zoom));
+	}
+
+}
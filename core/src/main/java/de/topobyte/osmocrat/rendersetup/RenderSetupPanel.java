@@ -28,6 +28,8 @@ import de.topobyte.adt.geo.BBox;
 import de.topobyte.mercator.image.MercatorImage;
 import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
 import de.topobyte.osmocrat.rendering.MapRenderer;
+import de.topobyte.osmocrat.rendering.NodeCoordinateStore;
+import de.topobyte.osmocrat.rendering.WayEnvelopes;
 
 public class RenderSetupPanel extends JPanel
 {
@@ -36,11 +38,22 @@ public class RenderSetupPanel extends JPanel
 
 	private SetupPanel panel;
 	private InMemoryListDataSet data;
+	private NodeCoordinateStore nodeCoordinates;
+	private WayEnvelopes wayEnvelopes;
 
 	public RenderSetupPanel(BBox bbox, int width, int height,
 			InMemoryListDataSet data)
+	{
+		this(bbox, width, height, data, null, null);
+	}
+
+	public RenderSetupPanel(BBox bbox, int width, int height,
+			InMemoryListDataSet data, NodeCoordinateStore nodeCoordinates,
+			WayEnvelopes wayEnvelopes)
 	{
 		this.data = data;
+		this.nodeCoordinates = nodeCoordinates;
+		this.wayEnvelopes = wayEnvelopes;
 		setLayout(new GridBagLayout());
 
 		panel = new SetupPanel(bbox, width, height);
@@ -82,7 +95,7 @@ public class RenderSetupPanel extends JPanel
 
 		MercatorImage mercatorImage = new MercatorImage(boundingBox, 800, 600);
 		MapRenderer renderer = new MapRenderer(boundingBox, mercatorImage,
-				data);
+				data, nodeCoordinates, wayEnvelopes);
 
 		JFrame frame = new JFrame("Osmocrat Map");
 		frame.add(renderer);
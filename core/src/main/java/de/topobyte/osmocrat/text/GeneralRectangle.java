@@ -62,6 +62,63 @@ public class GeneralRectangle
 		return polygon1.intersects(polygon2);
 	}
 
+	/**
+	 * Test whether two rectangles intersect using the separating axis theorem.
+	 * This gives the same result as {@link #intersects(float[], float[])},
+	 * including rectangles that only touch being considered intersecting, but
+	 * does not allocate any objects.
+	 * 
+	 * Works for any convex quadrilateral given in either winding order.
+	 */
+	public static boolean intersectsSat(float[] box1, float[] box2)
+	{
+		return intersectsSat(box1, 0, box2, 0);
+	}
+
+	/**
+	 * Like {@link #intersectsSat(float[], float[])}, for boxes stored at the
+	 * specified offsets of larger arrays.
+	 */
+	public static boolean intersectsSat(float[] coords1, int offset1,
+			float[] coords2, int offset2)
+	{
+		return !hasSeparatingAxis(coords1, offset1, coords2, offset2)
+				&& !hasSeparatingAxis(coords2, offset2, coords1, offset1);
+	}
+
+	/*
+	 * Test whether the normal of any edge of the first box separates the
+	 * projections of both boxes onto it.
+	 */
+	private static boolean hasSeparatingAxis(float[] box, int offset,
+			float[] other, int otherOffset)
+	{
+		for (int i = 0; i < 8; i += 2) {
+			int j = (i + 2) % 8;
+			double nx = box[offset + i + 1] - box[offset + j + 1];
+			double ny = box[offset + j] - box[offset + i];
+
+			double min1 = Double.POSITIVE_INFINITY;
+			double max1 = Double.NEGATIVE_INFINITY;
+			double min2 = Double.POSITIVE_INFINITY;
+			double max2 = Double.NEGATIVE_INFINITY;
+			for (int k = 0; k < 8; k += 2) {
+				double p1 = nx * box[offset + k] + ny * box[offset + k + 1];
+				double p2 = nx * other[otherOffset + k]
+						+ ny * other[otherOffset + k + 1];
+				min1 = Math.min(min1, p1);
+				max1 = Math.max(max1, p1);
+				min2 = Math.min(min2, p2);
+				max2 = Math.max(max2, p2);
+			}
+
+			if (max1 < min2 || max2 < min1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public static Polygon createPolygon(float[] box)
 	{
 		GeometryFactory factory = new GeometryFactory();
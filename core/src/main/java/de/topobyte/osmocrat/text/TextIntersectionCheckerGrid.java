@@ -0,0 +1,195 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.text;
+
+import java.util.Arrays;
+
+/**
+ * An implementation of the {@link TextIntersectionChecker} interface based on
+ * a uniform grid over the image.
+ * 
+ * Since label boxes all have similar sizes in image coordinates, a grid with
+ * cells about the size of a box finds the candidates for a box by looking at
+ * a few cells only. All data is stored in flat primitive arrays: the
+ * coordinates and bounds of the boxes and, for each cell, a linked list of
+ * the boxes overlapping it. Boxes outside of the image are assigned to the
+ * cells at the border of the grid.
+ */
+public class TextIntersectionCheckerGrid implements TextIntersectionChecker
+{
+
+	private float cellSize;
+	private int cols;
+	private int rows;
+
+	// 8 coordinates per box, as in GeneralRectangle
+	private float[] coords = new float[8 * 64];
+	// 4 values per box: minX, minY, maxX, maxY
+	private float[] bounds = new float[4 * 64];
+	private int numBoxes = 0;
+
+	// The index of the first entry for each cell, -1 for empty cells. Each
+	// entry references a box and the next entry of the same cell.
+	private int[] heads;
+	private int[] entryBoxes = new int[256];
+	private int[] entryNext = new int[256];
+	private int numEntries = 0;
+
+	// Used to test each box only once per query, even if it overlaps
+	// multiple cells
+	private int[] visited = new int[64];
+	private int query = 0;
+
+	/**
+	 * Create a checker for an image of the specified size.
+	 * 
+	 * @param width
+	 *            the width of the image.
+	 * @param height
+	 *            the height of the image.
+	 * @param cellSize
+	 *            the edge length of the grid cells, which should be about the
+	 *            size of typical text boxes, i.e. a small multiple of the font
+	 *            size.
+	 */
+	public TextIntersectionCheckerGrid(int width, int height, float cellSize)
+	{
+		this.cellSize = cellSize;
+		cols = Math.max(1, (int) Math.ceil(width / cellSize));
+		rows = Math.max(1, (int) Math.ceil(height / cellSize));
+		heads = new int[cols * rows];
+		Arrays.fill(heads, -1);
+	}
+
+	@Override
+	public void add(float[][] boxes)
+	{
+		for (float[] box : boxes) {
+			int index = store(box);
+			int b = index * 4;
+			int col1 = col(bounds[b]);
+			int row1 = row(bounds[b + 1]);
+			int col2 = col(bounds[b + 2]);
+			int row2 = row(bounds[b + 3]);
+			for (int row = row1; row <= row2; row++) {
+				for (int col = col1; col <= col2; col++) {
+					addEntry(row * cols + col, index);
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isValid(float[][] boxes)
+	{
+		for (float[] box : boxes) {
+			float minX = box[0], maxX = box[0];
+			float minY = box[1], maxY = box[1];
+			for (int i = 2; i < 8; i += 2) {
+				minX = Math.min(minX, box[i]);
+				maxX = Math.max(maxX, box[i]);
+				minY = Math.min(minY, box[i + 1]);
+				maxY = Math.max(maxY, box[i + 1]);
+			}
+
+			query++;
+			int col1 = col(minX);
+			int row1 = row(minY);
+			int col2 = col(maxX);
+			int row2 = row(maxY);
+			for (int row = row1; row <= row2; row++) {
+				for (int col = col1; col <= col2; col++) {
+					int e = heads[row * cols + col];
+					for (; e >= 0; e = entryNext[e]) {
+						int index = entryBoxes[e];
+						if (visited[index] == query) {
+							continue;
+						}
+						visited[index] = query;
+
+						int b = index * 4;
+						if (bounds[b] > maxX || bounds[b + 2] < minX
+								|| bounds[b + 1] > maxY
+								|| bounds[b + 3] < minY) {
+							continue;
+						}
+						if (GeneralRectangle.intersectsSat(box, 0, coords,
+								index * 8)) {
+							return false;
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private int col(float x)
+	{
+		return clamp((int) Math.floor(x / cellSize), cols);
+	}
+
+	private int row(float y)
+	{
+		return clamp((int) Math.floor(y / cellSize), rows);
+	}
+
+	private static int clamp(int value, int size)
+	{
+		return Math.max(0, Math.min(size - 1, value));
+	}
+
+	private int store(float[] box)
+	{
+		int index = numBoxes++;
+		if (index * 8 + 8 > coords.length) {
+			coords = Arrays.copyOf(coords, coords.length * 2);
+			bounds = Arrays.copyOf(bounds, bounds.length * 2);
+			visited = Arrays.copyOf(visited, visited.length * 2);
+		}
+		System.arraycopy(box, 0, coords, index * 8, 8);
+
+		float minX = box[0], maxX = box[0];
+		float minY = box[1], maxY = box[1];
+		for (int i = 2; i < 8; i += 2) {
+			minX = Math.min(minX, box[i]);
+			maxX = Math.max(maxX, box[i]);
+			minY = Math.min(minY, box[i + 1]);
+			maxY = Math.max(maxY, box[i + 1]);
+		}
+		int b = index * 4;
+		bounds[b] = minX;
+		bounds[b + 1] = minY;
+		bounds[b + 2] = maxX;
+		bounds[b + 3] = maxY;
+		return index;
+	}
+
+	private void addEntry(int cell, int index)
+	{
+		if (numEntries == entryBoxes.length) {
+			entryBoxes = Arrays.copyOf(entryBoxes, numEntries * 2);
+			entryNext = Arrays.copyOf(entryNext, numEntries * 2);
+		}
+		entryBoxes[numEntries] = index;
+		entryNext[numEntries] = heads[cell];
+		heads[cell] = numEntries;
+		numEntries++;
+	}
+
+}
@@ -25,8 +25,8 @@ import de.topobyte.jsi.GenericRTree;
 
 /**
  * An implementation of the {@link TextIntersectionChecker} interface based on
- * an rtree for efficient retrieval of objects and JTS for primitive
- * intersection testing.
+ * an rtree for efficient retrieval of objects and a separating axis test for
+ * primitive intersection testing.
  */
 public class TextIntersectionCheckerTree implements TextIntersectionChecker
 {
@@ -52,11 +52,7 @@ public class TextIntersectionCheckerTree implements TextIntersectionChecker
 			List<float[]> candidates = regions.intersectionsAsList(rect);
 			// test against each candidate
 			for (float[] region : candidates) {
-				try {
-					if (GeneralRectangle.intersects(box, region)) {
-						return false;
-					}
-				} catch (Exception e) {
+				if (GeneralRectangle.intersectsSat(box, region)) {
 					return false;
 				}
 			}
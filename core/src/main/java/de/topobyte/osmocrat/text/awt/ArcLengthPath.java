@@ -0,0 +1,326 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.text.awt;
+
+import java.awt.Shape;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.LineString;
+
+import de.topobyte.jgs.transform.CoordinateTransformer;
+
+/**
+ * A polyline in image coordinates, stored in primitive arrays together with
+ * the cumulative length along the line at each of its points.
+ *
+ * This allows laying out a label with a single pass over the geometry: the
+ * total length is known right away, the point at a given distance along the
+ * line and sub-paths are found by binary search, and text boxes and glyph
+ * positions are computed from the same arrays. Consecutive duplicate points
+ * are dropped, so that all segments have a positive length.
+ *
+ * Instances are immutable.
+ */
+public class ArcLengthPath
+{
+
+	private final float[] xs;
+	private final float[] ys;
+	// lengths[i] is the distance along the line from the first point to the
+	// i'th point
+	private final float[] lengths;
+	private final int size;
+
+	private ArcLengthPath(float[] xs, float[] ys, int size)
+	{
+		this.xs = xs;
+		this.ys = ys;
+		this.size = size;
+		lengths = new float[size];
+		for (int i = 1; i < size; i++) {
+			float dx = xs[i] - xs[i - 1];
+			float dy = ys[i] - ys[i - 1];
+			lengths[i] = lengths[i - 1] + (float) Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+
+	/**
+	 * Project the specified line string to image coordinates.
+	 */
+	public static ArcLengthPath create(LineString string,
+			CoordinateTransformer t)
+	{
+		CoordinateSequence coordinates = string.getCoordinateSequence();
+		Builder builder = new Builder(coordinates.size());
+		for (int i = 0; i < coordinates.size(); i++) {
+			builder.add((float) t.getX(coordinates.getX(i)),
+					(float) t.getY(coordinates.getY(i)));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Flatten the first subpath of the specified shape.
+	 */
+	public static ArcLengthPath create(Shape shape, double flatness)
+	{
+		Builder builder = new Builder(16);
+		PathIterator it = new FlatteningPathIterator(
+				shape.getPathIterator(null), flatness);
+		float points[] = new float[6];
+		float moveX = 0, moveY = 0;
+		loop: while (!it.isDone()) {
+			int type = it.currentSegment(points);
+			switch (type) {
+			case PathIterator.SEG_MOVETO:
+				if (builder.size > 0) {
+					break loop;
+				}
+				moveX = points[0];
+				moveY = points[1];
+				builder.add(moveX, moveY);
+				break;
+			case PathIterator.SEG_CLOSE:
+				builder.add(moveX, moveY);
+				break;
+			case PathIterator.SEG_LINETO:
+				builder.add(points[0], points[1]);
+				break;
+			}
+			it.next();
+		}
+		return builder.build();
+	}
+
+	private static class Builder
+	{
+
+		private float[] xs;
+		private float[] ys;
+		private int size = 0;
+
+		public Builder(int capacity)
+		{
+			xs = new float[Math.max(2, capacity)];
+			ys = new float[Math.max(2, capacity)];
+		}
+
+		public void add(float x, float y)
+		{
+			if (size > 0 && xs[size - 1] == x && ys[size - 1] == y) {
+				return;
+			}
+			if (size == xs.length) {
+				xs = Arrays.copyOf(xs, size * 2);
+				ys = Arrays.copyOf(ys, size * 2);
+			}
+			xs[size] = x;
+			ys[size] = y;
+			size++;
+		}
+
+		public ArcLengthPath build()
+		{
+			return new ArcLengthPath(xs, ys, size);
+		}
+
+	}
+
+	public int getNumPoints()
+	{
+		return size;
+	}
+
+	public float getX(int i)
+	{
+		return xs[i];
+	}
+
+	public float getY(int i)
+	{
+		return ys[i];
+	}
+
+	/**
+	 * @return the distance along the line from the first point to the
+	 *         specified point.
+	 */
+	public float getDistance(int i)
+	{
+		return lengths[i];
+	}
+
+	public float getLength()
+	{
+		return size == 0 ? 0 : lengths[size - 1];
+	}
+
+	/**
+	 * Find the segment that contains the point at the specified distance
+	 * along the line. Distances before the start or beyond the end of the
+	 * line map to the first or last segment respectively.
+	 *
+	 * @return the index of the segment's first point.
+	 */
+	public int getSegment(float distance)
+	{
+		if (size < 2) {
+			return 0;
+		}
+		// The last point whose distance is not greater than the requested
+		// one, limited to the first points of segments
+		int low = 0;
+		int high = size - 2;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (lengths[mid] <= distance) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Get the part of the line between the specified distances along it.
+	 * The range is limited to the extent of the line.
+	 */
+	public ArcLengthPath subPath(float start, float length)
+	{
+		if (size < 2) {
+			return this;
+		}
+		float total = getLength();
+		float end = Math.min(total, start + length);
+		start = Math.max(0, Math.min(start, end));
+
+		int i = getSegment(start);
+		int j = getSegment(end);
+
+		Builder builder = new Builder(j - i + 2);
+		builder.add(interpolateX(i, start), interpolateY(i, start));
+		for (int k = i + 1; k <= j; k++) {
+			builder.add(xs[k], ys[k]);
+		}
+		builder.add(interpolateX(j, end), interpolateY(j, end));
+		return builder.build();
+	}
+
+	/**
+	 * Get the x coordinate of the point at the specified distance along the
+	 * specified segment, see {@link #getSegment(float)}.
+	 */
+	public float interpolateX(int segment, float distance)
+	{
+		return xs[segment] + ratio(segment, distance)
+				* (xs[segment + 1] - xs[segment]);
+	}
+
+	/**
+	 * Get the y coordinate of the point at the specified distance along the
+	 * specified segment, see {@link #getSegment(float)}.
+	 */
+	public float interpolateY(int segment, float distance)
+	{
+		return ys[segment] + ratio(segment, distance)
+				* (ys[segment + 1] - ys[segment]);
+	}
+
+	// The position of the distance relative to the segment, 0 at its start
+	// and 1 at its end
+	private float ratio(int segment, float distance)
+	{
+		float length = lengths[segment + 1] - lengths[segment];
+		if (length == 0) {
+			// Segments that are too short to change the cumulative length
+			return 0;
+		}
+		return (distance - lengths[segment]) / length;
+	}
+
+	/**
+	 * @return the same line, running in the opposite direction.
+	 */
+	public ArcLengthPath reverse()
+	{
+		float[] rxs = new float[size];
+		float[] rys = new float[size];
+		for (int i = 0; i < size; i++) {
+			rxs[i] = xs[size - 1 - i];
+			rys[i] = ys[size - 1 - i];
+		}
+		return new ArcLengthPath(rxs, rys, size);
+	}
+
+	/**
+	 * @return whether the line ends left of where it starts.
+	 */
+	public boolean isReverseX()
+	{
+		return size > 0 && xs[size - 1] < xs[0];
+	}
+
+	public Path2D toPath()
+	{
+		Path2D path = new Path2D.Float();
+		if (size == 0) {
+			return path;
+		}
+		path.moveTo(xs[0], ys[0]);
+		for (int i = 1; i < size; i++) {
+			path.lineTo(xs[i], ys[i]);
+		}
+		return path;
+	}
+
+	/**
+	 * Create a box of the specified height around each segment of the line,
+	 * in the format of {@link de.topobyte.osmocrat.text.GeneralRectangle}.
+	 */
+	public float[][] createTextBoxes(double height)
+	{
+		double h = height / 2;
+		float[][] boxes = new float[Math.max(0, size - 1)][];
+		for (int i = 1; i < size; i++) {
+			double lastX = xs[i - 1];
+			double lastY = ys[i - 1];
+			double thisX = xs[i];
+			double thisY = ys[i];
+
+			double dx = thisX - lastX;
+			double dy = thisY - lastY;
+			double lambda = h / Math.sqrt(dx * dx + dy * dy);
+			double ox = -dy * lambda;
+			double oy = dx * lambda;
+
+			boxes[i - 1] = new float[] { //
+					(float) (lastX + ox), (float) (lastY + oy), //
+					(float) (lastX - ox), (float) (lastY - oy), //
+					(float) (thisX - ox), (float) (thisY - oy), //
+					(float) (thisX + ox), (float) (thisY + oy) //
+			};
+		}
+		return boxes;
+	}
+
+}
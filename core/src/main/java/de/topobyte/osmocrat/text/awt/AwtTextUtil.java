@@ -21,13 +21,11 @@ import java.awt.Font;
 import java.awt.Shape;
 import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphVector;
-import java.awt.font.LineMetrics;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.FlatteningPathIterator;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -83,97 +81,88 @@ public class AwtTextUtil
 	}
 
 	public static Shape createStrokedShape(Shape shape, Font font, String text)
+	{
+		return createStrokedShape(shape, new TextMeasurement(font, text));
+	}
+
+	/**
+	 * Lay out the measured text along the specified shape, centered on it.
+	 * Only the first subpath of the shape is used.
+	 */
+	public static Shape createStrokedShape(Shape shape,
+			TextMeasurement measurement)
+	{
+		return createStrokedShape(ArcLengthPath.create(shape, FLATNESS),
+				measurement);
+	}
+
+	public static Shape createStrokedShape(ArcLengthPath path,
+			TextMeasurement measurement)
+	{
+		return createStrokedShape(path, measurement,
+				GlyphOutlineCache.getShared());
+	}
+
+	/**
+	 * Lay out the measured text along the specified path, centered on it.
+	 * Uses the glyph positions and advances of the measurement, so that texts
+	 * laid out repeatedly only need to be measured once, and finds the
+	 * position of each glyph on the path by binary search. The cached glyph
+	 * outlines are appended to the result with a single reusable transform.
+	 */
+	public static Shape createStrokedShape(ArcLengthPath path,
+			TextMeasurement measurement, GlyphOutlineCache outlines)
 	{
 		/* the result */
 		GeneralPath result = new GeneralPath();
 
-		/* create the glyph vector */
-		FontRenderContext frc = new FontRenderContext(null, true, true);
-		GlyphVector glyphVector = font.createGlyphVector(frc, text);
-		int length = glyphVector.getNumGlyphs();
+		int length = measurement.getNumGlyphs();
 		/* metrics of the text */
-		double width = glyphVector.getLogicalBounds().getWidth();
-		float pathLength = AwtTextUtil.measurePathLength(shape);
-		// System.out.println("text: " + text);
-		// System.out.println("glyph vector width: " + width);
-		// System.out.println("path length: " + pathLength);
-
-		/* ignore empty glyph vector */
-		if (length == 0) {
+		double width = measurement.getWidth();
+		float pathLength = path.getLength();
+
+		/* ignore empty glyph vector and degenerate paths */
+		if (length == 0 || path.getNumPoints() < 2) {
 			return result;
 		}
 
 		/* get some font information */
-		LineMetrics lineMetrics = font.getLineMetrics(text, frc);
-		float height = lineMetrics.getHeight();
-		float descent = lineMetrics.getDescent();
+		float height = measurement.getHeight();
+		float descent = measurement.getDescent();
 
 		/* ensure to center the text on the path */
 		float remaining = (float) (pathLength - width);
 		float offset = remaining / 2;
 
 		/* this transform is used to position individual glyphs */
-		float points[] = new float[6];
-		float moveX = 0, moveY = 0;
-		float lastX = 0, lastY = 0;
-		float thisX = 0, thisY = 0;
+		AffineTransform t = new AffineTransform();
+		float[] buffer = new float[6];
+		Font font = measurement.getFont();
 
-		int currentChar = 0;
-		float nextAdvance = glyphVector.getGlyphMetrics(currentChar)
-				.getAdvance() * 0.5f;
+		float nextAdvance = measurement.getAdvance(0) * 0.5f;
 		float next = offset + nextAdvance;
 
-		AffineTransform t = new AffineTransform();
-
-		PathIterator it = new FlatteningPathIterator(
-				shape.getPathIterator(null), FLATNESS);
-		while (currentChar < length && !it.isDone()) {
-			int type = it.currentSegment(points);
-			switch (type) {
-			case PathIterator.SEG_MOVETO:
-				moveX = lastX = points[0];
-				moveY = lastY = points[1];
-				break;
-			case PathIterator.SEG_CLOSE:
-				thisX = moveX;
-				thisY = moveY;
-				//$FALL-THROUGH$
-			case PathIterator.SEG_LINETO:
-				thisX = points[0];
-				thisY = points[1];
-				float dx = thisX - lastX;
-				float dy = thisY - lastY;
-				float distance = (float) Math.sqrt(dx * dx + dy * dy);
-				if (distance >= next) {
-					float r = 1.0f / distance;
-					float angle = (float) Math.atan2(dy, dx);
-					while (currentChar < length && distance >= next) {
-						Shape glyph = glyphVector.getGlyphOutline(currentChar);
-						Point2D p = glyphVector.getGlyphPosition(currentChar);
-						float px = (float) p.getX();
-						float py = (float) p.getY();
-						float x = lastX + next * dx * r;
-						float y = lastY + next * dy * r;
-
-						float advance = nextAdvance;
-						nextAdvance = currentChar >= length - 1 ? 0
-								: glyphVector.getGlyphMetrics(currentChar + 1)
-										.getAdvance() * 0.5f;
-						t.setToTranslation(x, y);
-						t.rotate(angle);
-						t.translate(-px - advance, height / 2 - descent - py);
-						result.moveTo(0, 0);
-						result.append(t.createTransformedShape(glyph), false);
-						next += advance + nextAdvance;
-						currentChar++;
-					}
-				}
-				next -= distance;
-				lastX = thisX;
-				lastY = thisY;
-				break;
-			}
-			it.next();
+		for (int i = 0; i < length && next <= pathLength; i++) {
+			/* find the glyph's center on the path */
+			int segment = path.getSegment(next);
+			float x = path.interpolateX(segment, next);
+			float y = path.interpolateY(segment, next);
+			float angle = (float) Math.atan2(
+					path.getY(segment + 1) - path.getY(segment),
+					path.getX(segment + 1) - path.getX(segment));
+
+			GlyphOutline glyph = outlines.get(font,
+					measurement.getGlyphCode(i));
+
+			float advance = nextAdvance;
+			nextAdvance = i >= length - 1 ? 0
+					: measurement.getAdvance(i + 1) * 0.5f;
+			/* the outline is relative to the glyph's origin */
+			t.setToTranslation(x, y);
+			t.rotate(angle);
+			t.translate(-advance, height / 2 - descent);
+			glyph.appendTo(result, t, buffer);
+			next += advance + nextAdvance;
 		}
 
 		return result;
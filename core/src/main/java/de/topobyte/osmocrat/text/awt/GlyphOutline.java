@@ -0,0 +1,124 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.text.awt;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * The outline of a single glyph relative to its origin, stored compactly as
+ * an array of segment types and an array of coordinates.
+ *
+ * Instances are immutable and can be appended to paths with arbitrary
+ * transforms without creating intermediate shapes.
+ */
+public class GlyphOutline
+{
+
+	private final byte[] types;
+	private final float[] coords;
+
+	public GlyphOutline(Shape shape)
+	{
+		byte[] types = new byte[16];
+		float[] coords = new float[64];
+		int numTypes = 0;
+		int numCoords = 0;
+
+		float[] points = new float[6];
+		PathIterator it = shape.getPathIterator(null);
+		while (!it.isDone()) {
+			int type = it.currentSegment(points);
+			int n = numPoints(type) * 2;
+			if (numTypes == types.length) {
+				types = Arrays.copyOf(types, numTypes * 2);
+			}
+			if (numCoords + n > coords.length) {
+				coords = Arrays.copyOf(coords, (numCoords + n) * 2);
+			}
+			types[numTypes++] = (byte) type;
+			System.arraycopy(points, 0, coords, numCoords, n);
+			numCoords += n;
+			it.next();
+		}
+
+		this.types = Arrays.copyOf(types, numTypes);
+		this.coords = Arrays.copyOf(coords, numCoords);
+	}
+
+	private static int numPoints(int type)
+	{
+		switch (type) {
+		default:
+		case PathIterator.SEG_CLOSE:
+			return 0;
+		case PathIterator.SEG_MOVETO:
+		case PathIterator.SEG_LINETO:
+			return 1;
+		case PathIterator.SEG_QUADTO:
+			return 2;
+		case PathIterator.SEG_CUBICTO:
+			return 3;
+		}
+	}
+
+	public boolean isEmpty()
+	{
+		return types.length == 0;
+	}
+
+	/**
+	 * Append the outline to the specified path, transformed with the
+	 * specified transform.
+	 *
+	 * @param buffer
+	 *            a scratch array of at least 6 elements, so that no memory
+	 *            needs to be allocated.
+	 */
+	public void appendTo(Path2D path, AffineTransform t, float[] buffer)
+	{
+		int c = 0;
+		for (byte type : types) {
+			int n = numPoints(type);
+			t.transform(coords, c, buffer, 0, n);
+			c += n * 2;
+			switch (type) {
+			case PathIterator.SEG_MOVETO:
+				path.moveTo(buffer[0], buffer[1]);
+				break;
+			case PathIterator.SEG_LINETO:
+				path.lineTo(buffer[0], buffer[1]);
+				break;
+			case PathIterator.SEG_QUADTO:
+				path.quadTo(buffer[0], buffer[1], buffer[2], buffer[3]);
+				break;
+			case PathIterator.SEG_CUBICTO:
+				path.curveTo(buffer[0], buffer[1], buffer[2], buffer[3],
+						buffer[4], buffer[5]);
+				break;
+			case PathIterator.SEG_CLOSE:
+				path.closePath();
+				break;
+			}
+		}
+	}
+
+}
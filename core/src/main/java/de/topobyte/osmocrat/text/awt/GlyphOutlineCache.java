@@ -0,0 +1,111 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.text.awt;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe cache of {@link GlyphOutline}s keyed by font and glyph code.
+ *
+ * Labels consist of a small set of glyphs in a few fonts, so the cache is not
+ * bounded: its size is limited by the number of distinct glyphs used.
+ */
+public class GlyphOutlineCache
+{
+
+	private static final GlyphOutlineCache SHARED = new GlyphOutlineCache();
+
+	/**
+	 * @return a cache instance shared by all users that do not configure their
+	 *         own one.
+	 */
+	public static GlyphOutlineCache getShared()
+	{
+		return SHARED;
+	}
+
+	private static class Key
+	{
+
+		private final Font font;
+		private final int glyphCode;
+
+		public Key(Font font, int glyphCode)
+		{
+			this.font = font;
+			this.glyphCode = glyphCode;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return font.hashCode() * 31 + glyphCode;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return glyphCode == other.glyphCode && font.equals(other.font);
+		}
+
+	}
+
+	private final FontRenderContext frc = new FontRenderContext(null, true,
+			true);
+
+	private ConcurrentMap<Key, GlyphOutline> outlines = //
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Get the outline of the specified glyph, relative to the glyph's origin.
+	 */
+	public GlyphOutline get(Font font, int glyphCode)
+	{
+		Key key = new Key(font, glyphCode);
+		GlyphOutline outline = outlines.get(key);
+		if (outline == null) {
+			GlyphVector glyphVector = font.createGlyphVector(frc,
+					new int[] { glyphCode });
+			outline = new GlyphOutline(glyphVector.getGlyphOutline(0));
+			GlyphOutline previous = outlines.putIfAbsent(key, outline);
+			if (previous != null) {
+				outline = previous;
+			}
+		}
+		return outline;
+	}
+
+	public int size()
+	{
+		return outlines.size();
+	}
+
+	public void clear()
+	{
+		outlines.clear();
+	}
+
+}
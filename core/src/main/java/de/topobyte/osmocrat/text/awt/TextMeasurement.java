@@ -0,0 +1,134 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.text.awt;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Point2D;
+
+/**
+ * The layout of a text in a font: its glyph vector, the codes, positions and
+ * advances of its glyphs and its line metrics. The outlines of the glyphs can
+ * be obtained from a {@link GlyphOutlineCache}.
+ *
+ * Everything needed for laying out labels is extracted from the glyph vector
+ * during construction, so that instances are immutable and can be shared
+ * between threads. The glyph vector itself is only exposed for reading.
+ */
+public class TextMeasurement
+{
+
+	private final Font font;
+	private final String text;
+
+	private final GlyphVector glyphVector;
+	private final double width;
+	private final float height;
+	private final float descent;
+
+	private final int[] glyphCodes;
+	// Two values per glyph: x, y
+	private final float[] positions;
+	private final float[] advances;
+
+	public TextMeasurement(Font font, String text)
+	{
+		this.font = font;
+		this.text = text;
+
+		FontRenderContext frc = new FontRenderContext(null, true, true);
+		glyphVector = font.createGlyphVector(frc, text);
+		width = glyphVector.getLogicalBounds().getWidth();
+
+		LineMetrics lineMetrics = font.getLineMetrics(text, frc);
+		height = lineMetrics.getHeight();
+		descent = lineMetrics.getDescent();
+
+		int n = glyphVector.getNumGlyphs();
+		glyphCodes = glyphVector.getGlyphCodes(0, n, null);
+		positions = new float[n * 2];
+		advances = new float[n];
+		for (int i = 0; i < n; i++) {
+			Point2D position = glyphVector.getGlyphPosition(i);
+			positions[i * 2] = (float) position.getX();
+			positions[i * 2 + 1] = (float) position.getY();
+			advances[i] = glyphVector.getGlyphMetrics(i).getAdvance();
+		}
+	}
+
+	public Font getFont()
+	{
+		return font;
+	}
+
+	public String getText()
+	{
+		return text;
+	}
+
+	public GlyphVector getGlyphVector()
+	{
+		return glyphVector;
+	}
+
+	/**
+	 * @return the width of the logical bounds of the text.
+	 */
+	public double getWidth()
+	{
+		return width;
+	}
+
+	public float getHeight()
+	{
+		return height;
+	}
+
+	public float getDescent()
+	{
+		return descent;
+	}
+
+	public int getNumGlyphs()
+	{
+		return glyphCodes.length;
+	}
+
+	public int getGlyphCode(int glyph)
+	{
+		return glyphCodes[glyph];
+	}
+
+	public float getX(int glyph)
+	{
+		return positions[glyph * 2];
+	}
+
+	public float getY(int glyph)
+	{
+		return positions[glyph * 2 + 1];
+	}
+
+	public float getAdvance(int glyph)
+	{
+		return advances[glyph];
+	}
+
+}
@@ -0,0 +1,170 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat.text.awt;
+
+import java.awt.Font;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe cache of {@link TextMeasurement}s keyed by font name, font
+ * size and text, bounded by the number of entries and evicting the least
+ * recently used entries first.
+ *
+ * Labels of long streets are placed along many segments that share one name,
+ * so the same text is measured and laid out over and over again. Fonts are
+ * cached as well, so that labels of the same style share a single font
+ * instance.
+ */
+public class TextMeasurementCache
+{
+
+	private static final TextMeasurementCache SHARED = new TextMeasurementCache(
+			8192);
+
+	/**
+	 * @return a cache instance shared by all renderers that do not configure
+	 *         their own one.
+	 */
+	public static TextMeasurementCache getShared()
+	{
+		return SHARED;
+	}
+
+	private static class Key
+	{
+
+		private final String fontName;
+		private final int size;
+		private final String text;
+
+		public Key(String fontName, int size, String text)
+		{
+			this.fontName = fontName;
+			this.size = size;
+			this.text = text;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (fontName.hashCode() * 31 + size) * 31 + text.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return size == other.size && fontName.equals(other.fontName)
+					&& text.equals(other.text);
+		}
+
+	}
+
+	private final int maxEntries;
+
+	private Map<Key, TextMeasurement> measurements;
+	private Map<String, Font> fonts = new HashMap<>();
+
+	private long hits = 0;
+	private long misses = 0;
+
+	public TextMeasurementCache(int maxEntries)
+	{
+		this.maxEntries = maxEntries;
+		measurements = new LinkedHashMap<Key, TextMeasurement>(16, 0.75f,
+				true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Key, TextMeasurement> eldest)
+			{
+				return size() > TextMeasurementCache.this.maxEntries;
+			}
+
+		};
+	}
+
+	/**
+	 * Get the plain font with the specified name and size.
+	 */
+	public synchronized Font getFont(String fontName, int size)
+	{
+		String key = fontName + "/" + size;
+		Font font = fonts.get(key);
+		if (font == null) {
+			font = new Font(fontName, Font.PLAIN, size);
+			fonts.put(key, font);
+		}
+		return font;
+	}
+
+	/**
+	 * Get the measurement of the specified text in the plain font with the
+	 * specified name and size.
+	 */
+	public TextMeasurement get(String fontName, int size, String text)
+	{
+		Key key = new Key(fontName, size, text);
+		synchronized (this) {
+			TextMeasurement measurement = measurements.get(key);
+			if (measurement != null) {
+				hits++;
+				return measurement;
+			}
+			misses++;
+		}
+
+		// Measure outside of the lock. Threads that miss the same text
+		// concurrently measure it more than once, which is harmless.
+		TextMeasurement measurement = new TextMeasurement(
+				getFont(fontName, size), text);
+		synchronized (this) {
+			measurements.put(key, measurement);
+		}
+		return measurement;
+	}
+
+	public synchronized int size()
+	{
+		return measurements.size();
+	}
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	public synchronized void clear()
+	{
+		measurements.clear();
+		fonts.clear();
+	}
+
+}
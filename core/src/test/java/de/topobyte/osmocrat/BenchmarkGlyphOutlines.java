@@ -0,0 +1,216 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat;
+
+import java.awt.Shape;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.geom.LineString;
+
+import de.topobyte.adt.geo.BBox;
+import de.topobyte.mercator.image.MercatorImage;
+import de.topobyte.osm4j.core.access.OsmInputException;
+import de.topobyte.osm4j.core.access.OsmReader;
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osm4j.core.dataset.ListDataSetLoader;
+import de.topobyte.osm4j.xml.dynsax.OsmXmlReader;
+import de.topobyte.osmocrat.rendering.CachedRenderingDataSource;
+import de.topobyte.osmocrat.rendering.ConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+import de.topobyte.osmocrat.rendering.config.Rendering;
+import de.topobyte.osmocrat.rendering.config.instructions.WayInstruction;
+import de.topobyte.osmocrat.rendering.config.instructions.ways.TextWayStyle;
+import de.topobyte.osmocrat.text.awt.ArcLengthPath;
+import de.topobyte.osmocrat.text.awt.AwtTextUtil;
+import de.topobyte.osmocrat.text.awt.TextMeasurement;
+import de.topobyte.osmocrat.text.awt.TextMeasurementCache;
+import de.topobyte.overpass.OverpassUtil;
+
+/**
+ * Compare laying out the glyphs of all labels of a dense city center with
+ * cached glyph outlines against transforming the outlines of each label's
+ * glyph vector.
+ */
+public class BenchmarkGlyphOutlines
+{
+
+	private static final int WARMUP = 5;
+	private static final int RUNS = 20;
+
+	private static class Label
+	{
+
+		private ArcLengthPath path;
+		private TextMeasurement measurement;
+
+		public Label(ArcLengthPath path, TextMeasurement measurement)
+		{
+			this.path = path;
+			this.measurement = measurement;
+		}
+
+	}
+
+	public static void main(String[] args) throws IOException, OsmInputException
+	{
+		BBox bbox = new BBox(13.38000, 52.52500, 13.41500, 52.51000);
+		int width = 4000;
+		int height = 3000;
+		float scaleText = 2;
+
+		OverpassUtil.cache(bbox);
+		Path cacheFile = OverpassUtil.cacheFile(bbox);
+		InputStream input = Files.newInputStream(cacheFile);
+
+		OsmReader reader = new OsmXmlReader(input, false);
+		InMemoryListDataSet data = ListDataSetLoader.read(reader, true, true,
+				true);
+
+		MercatorImage mapImage = new MercatorImage(bbox, width, height);
+		RenderInstructions instructions = Rendering.style2();
+		CachedRenderingDataSource renderingData = ConfigMapRenderer
+				.buildRenderingData(mapImage, data, instructions);
+
+		// Lay out every named way, as if all labels were accepted
+		TextMeasurementCache measurements = new TextMeasurementCache(65536);
+		List<Label> labels = new ArrayList<>();
+		for (Map.Entry<WayInstruction, List<LineString>> entry : renderingData
+				.getWays().entrySet()) {
+			if (!(entry.getKey().getStyle() instanceof TextWayStyle)) {
+				continue;
+			}
+			TextWayStyle style = (TextWayStyle) entry.getKey().getStyle();
+			int fontSize = (int) (style.getSize() * scaleText + 0.5);
+			for (LineString string : entry.getValue()) {
+				String name = renderingData.getName(string);
+				if (name == null) {
+					continue;
+				}
+				labels.add(new Label(ArcLengthPath.create(string, mapImage),
+						measurements.get(style.getFontName(), fontSize,
+								name)));
+			}
+		}
+		System.out.println(labels.size() + " labels");
+
+		for (int i = 0; i < 3; i++) {
+			run("glyph vector outlines", labels, false);
+			run("cached glyph outlines", labels, true);
+		}
+	}
+
+	private static void run(String title, List<Label> labels, boolean cached)
+	{
+		for (int i = 0; i < WARMUP; i++) {
+			layout(labels, cached);
+		}
+
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		long bytes = allocatedBytes(bean);
+		long start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			layout(labels, cached);
+		}
+		long nanos = System.nanoTime() - start;
+		bytes = allocatedBytes(bean) - bytes;
+
+		System.out.println(String.format(
+				"%s: %.2f ms, %.1f KiB allocated per layout of all labels",
+				title, nanos / 1e6 / RUNS, bytes / 1024.0 / RUNS));
+	}
+
+	private static long allocatedBytes(ThreadMXBean bean)
+	{
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private static void layout(List<Label> labels, boolean cached)
+	{
+		for (Label label : labels) {
+			if (cached) {
+				AwtTextUtil.createStrokedShape(label.path, label.measurement);
+			} else {
+				createStrokedShapeUncached(label.path, label.measurement);
+			}
+		}
+	}
+
+	/*
+	 * The glyph layout as it was done before caching glyph outlines: each
+	 * glyph's outline is obtained from the glyph vector and transformed into
+	 * a new shape.
+	 */
+	private static Shape createStrokedShapeUncached(ArcLengthPath path,
+			TextMeasurement measurement)
+	{
+		GeneralPath result = new GeneralPath();
+		int length = measurement.getNumGlyphs();
+		if (length == 0 || path.getNumPoints() < 2) {
+			return result;
+		}
+
+		GlyphVector glyphVector = measurement.getGlyphVector();
+		float height = measurement.getHeight();
+		float descent = measurement.getDescent();
+		float pathLength = path.getLength();
+		float offset = (float) (pathLength - measurement.getWidth()) / 2;
+
+		AffineTransform t = new AffineTransform();
+		float nextAdvance = measurement.getAdvance(0) * 0.5f;
+		float next = offset + nextAdvance;
+		for (int i = 0; i < length && next <= pathLength; i++) {
+			int segment = path.getSegment(next);
+			float x = path.interpolateX(segment, next);
+			float y = path.interpolateY(segment, next);
+			float angle = (float) Math.atan2(
+					path.getY(segment + 1) - path.getY(segment),
+					path.getX(segment + 1) - path.getX(segment));
+
+			Shape glyph = glyphVector.getGlyphOutline(i);
+			Point2D p = glyphVector.getGlyphPosition(i);
+
+			float advance = nextAdvance;
+			nextAdvance = i >= length - 1 ? 0
+					: measurement.getAdvance(i + 1) * 0.5f;
+			t.setToTranslation(x, y);
+			t.rotate(angle);
+			t.translate(-p.getX() - advance,
+					height / 2 - descent - p.getY());
+			result.append(t.createTransformedShape(glyph), false);
+			next += advance + nextAdvance;
+		}
+		return result;
+	}
+
+}
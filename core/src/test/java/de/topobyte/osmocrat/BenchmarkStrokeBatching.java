@@ -0,0 +1,105 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import de.topobyte.adt.geo.BBox;
+import de.topobyte.mercator.image.MercatorImage;
+import de.topobyte.osm4j.core.access.OsmInputException;
+import de.topobyte.osm4j.core.access.OsmReader;
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osm4j.core.dataset.ListDataSetLoader;
+import de.topobyte.osm4j.xml.dynsax.OsmXmlReader;
+import de.topobyte.osmocrat.rendering.ConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.GraphicsConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+import de.topobyte.osmocrat.rendering.config.Rendering;
+import de.topobyte.overpass.OverpassUtil;
+
+public class BenchmarkStrokeBatching
+{
+
+	private static final int WARMUP = 3;
+	private static final int RUNS = 10;
+
+	public static void main(String[] args) throws IOException, OsmInputException
+	{
+		// This is the region we would like to render
+		BBox bbox = new BBox(13.45546, 52.51229, 13.46642, 52.50761);
+		int width = 2000;
+		int height = 1500;
+
+		OverpassUtil.cache(bbox);
+		Path cacheFile = OverpassUtil.cacheFile(bbox);
+		InputStream input = Files.newInputStream(cacheFile);
+
+		// Create a reader and read all data into a data set
+		OsmReader reader = new OsmXmlReader(input, false);
+		InMemoryListDataSet data = ListDataSetLoader.read(reader, true, true,
+				true);
+
+		MercatorImage mapImage = new MercatorImage(bbox, width, height);
+		RenderInstructions instructions = Rendering.style2();
+
+		GraphicsConfigMapRenderer renderer = ConfigMapRenderer
+				.setupGraphicsRenderer(bbox, mapImage, data, instructions);
+		renderer.setScaleLines(2);
+		renderer.setScaleText(2);
+
+		for (int batchSize : new int[] { 0, 256, 4096, 65536 }) {
+			renderer.setBatchStrokes(batchSize > 0);
+			renderer.setBatchSize(batchSize);
+			// Keep converted shapes, so that we measure stroking only
+			renderer.setCacheShapes(true);
+
+			for (int i = 0; i < WARMUP; i++) {
+				paint(renderer, width, height);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < RUNS; i++) {
+				paint(renderer, width, height);
+			}
+			long nanos = System.nanoTime() - start;
+
+			String mode = batchSize > 0 ? "batched (" + batchSize + ")"
+					: "one draw per way";
+			System.out.println(String.format("%s: %.1f ms per frame", mode,
+					nanos / 1e6 / RUNS));
+		}
+	}
+
+	private static void paint(GraphicsConfigMapRenderer renderer, int width,
+			int height)
+	{
+		BufferedImage image = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setColor(new Color(0xEEEEEE));
+		graphics.fillRect(0, 0, width, height);
+		renderer.paint(graphics);
+		graphics.dispose();
+	}
+
+}
@@ -0,0 +1,188 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.topobyte.adt.geo.BBox;
+import de.topobyte.mercator.image.MercatorImage;
+import de.topobyte.osm4j.core.access.OsmInputException;
+import de.topobyte.osm4j.core.access.OsmReader;
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osm4j.core.dataset.ListDataSetLoader;
+import de.topobyte.osm4j.xml.dynsax.OsmXmlReader;
+import de.topobyte.osmocrat.rendering.ConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.GraphicsConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.PlacedLabel;
+import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+import de.topobyte.osmocrat.rendering.config.Rendering;
+import de.topobyte.osmocrat.rendering.config.instructions.Instruction;
+import de.topobyte.osmocrat.text.TextIntersectionChecker;
+import de.topobyte.osmocrat.text.TextIntersectionCheckerGrid;
+import de.topobyte.osmocrat.text.TextIntersectionCheckerTree;
+import de.topobyte.osmocrat.text.TextIntersectionCheckerType;
+import de.topobyte.overpass.OverpassUtil;
+
+public class BenchmarkTextIntersectionCheckers
+{
+
+	private static final int WARMUP = 3;
+	private static final int RUNS = 10;
+
+	public static void main(String[] args) throws IOException, OsmInputException
+	{
+		benchmarkLabelPlacement();
+		benchmarkSynthetic();
+	}
+
+	/*
+	 * Place the labels of a dense downtown map with each implementation.
+	 */
+	private static void benchmarkLabelPlacement()
+			throws IOException, OsmInputException
+	{
+		BBox bbox = new BBox(13.38000, 52.52500, 13.41500, 52.51000);
+		int width = 4000;
+		int height = 3000;
+
+		OverpassUtil.cache(bbox);
+		Path cacheFile = OverpassUtil.cacheFile(bbox);
+		InputStream input = Files.newInputStream(cacheFile);
+
+		OsmReader reader = new OsmXmlReader(input, false);
+		InMemoryListDataSet data = ListDataSetLoader.read(reader, true, true,
+				true);
+
+		MercatorImage mapImage = new MercatorImage(bbox, width, height);
+		RenderInstructions instructions = Rendering.style2();
+
+		GraphicsConfigMapRenderer renderer = ConfigMapRenderer
+				.setupGraphicsRenderer(bbox, mapImage, data, instructions);
+		renderer.setScaleText(2);
+		// Convert the ways once, so that we mostly measure collision checks
+		renderer.prepareShapes();
+
+		for (TextIntersectionCheckerType type : TextIntersectionCheckerType
+				.values()) {
+			renderer.setTextIntersectionCheckerType(type);
+
+			int placed = 0;
+			for (int i = 0; i < WARMUP; i++) {
+				placed = count(renderer.placeLabels());
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < RUNS; i++) {
+				renderer.placeLabels();
+			}
+			long nanos = System.nanoTime() - start;
+
+			System.out.println(String.format(
+					"%s: %.1f ms per placement, %d labels placed", type,
+					nanos / 1e6 / RUNS, placed));
+		}
+	}
+
+	private static int count(Map<Instruction, List<PlacedLabel>> labels)
+	{
+		int count = 0;
+		for (List<PlacedLabel> list : labels.values()) {
+			count += list.size();
+		}
+		return count;
+	}
+
+	/*
+	 * Offer many random labels made of a few rotated boxes each, so that the
+	 * image gets crowded and most candidates are rejected.
+	 */
+	private static void benchmarkSynthetic()
+	{
+		int width = 4000;
+		int height = 3000;
+		float fontSize = 24;
+		int numLabels = 200000;
+
+		Random random = new Random(42);
+		float[][][] labels = new float[numLabels][][];
+		for (int i = 0; i < numLabels; i++) {
+			labels[i] = randomLabel(random, width, height, fontSize);
+		}
+
+		for (int run = 0; run < RUNS; run++) {
+			for (TextIntersectionCheckerType type : TextIntersectionCheckerType
+					.values()) {
+				TextIntersectionChecker checker;
+				if (type == TextIntersectionCheckerType.GRID) {
+					checker = new TextIntersectionCheckerGrid(width, height,
+							2 * fontSize);
+				} else {
+					checker = new TextIntersectionCheckerTree();
+				}
+
+				int accepted = 0;
+				long start = System.nanoTime();
+				for (float[][] label : labels) {
+					if (checker.isValid(label)) {
+						checker.add(label);
+						accepted++;
+					}
+				}
+				long nanos = System.nanoTime() - start;
+
+				System.out.println(String.format(
+						"synthetic, %s: %.1f ms, %d of %d labels accepted",
+						type, nanos / 1e6, accepted, numLabels));
+			}
+		}
+	}
+
+	private static float[][] randomLabel(Random random, int width, int height,
+			float fontSize)
+	{
+		int numBoxes = 1 + random.nextInt(4);
+		float[][] boxes = new float[numBoxes][];
+		double x = random.nextDouble() * width;
+		double y = random.nextDouble() * height;
+		double angle = random.nextDouble() * 2 * Math.PI;
+		double h = fontSize / 2;
+		for (int i = 0; i < numBoxes; i++) {
+			double length = fontSize * (1 + random.nextDouble() * 3);
+			double dx = Math.cos(angle) * length;
+			double dy = Math.sin(angle) * length;
+			double ox = -Math.sin(angle) * h;
+			double oy = Math.cos(angle) * h;
+			boxes[i] = new float[] { //
+					(float) (x + ox), (float) (y + oy), //
+					(float) (x - ox), (float) (y - oy), //
+					(float) (x + dx - ox), (float) (y + dy - oy), //
+					(float) (x + dx + ox), (float) (y + dy + oy) //
+			};
+			x += dx;
+			y += dy;
+			angle += (random.nextDouble() - 0.5) * 0.5;
+		}
+		return boxes;
+	}
+
+}
@@ -0,0 +1,157 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat;
+
+import java.util.Random;
+
+import de.topobyte.osmocrat.text.GeneralRectangle;
+
+/**
+ * Compare the separating axis intersection test for label boxes with the
+ * JTS based one on random pairs of rectangles.
+ */
+public class TestGeneralRectangleIntersection
+{
+
+	private static final int PAIRS = 1000000;
+
+	public static void main(String[] args)
+	{
+		Random random = new Random(42);
+
+		int mismatches = 0;
+		int intersecting = 0;
+		for (int i = 0; i < PAIRS; i++) {
+			float[] box1, box2;
+			if (i % 10 == 0) {
+				// Axis-aligned boxes on a coarse integer grid, so that many
+				// of them share edges or corners exactly
+				box1 = randomGridBox(random);
+				box2 = randomGridBox(random);
+			} else {
+				box1 = randomBox(random);
+				box2 = randomBox(random);
+			}
+
+			boolean expected = GeneralRectangle.intersects(box1, box2);
+			boolean actual = GeneralRectangle.intersectsSat(box1, box2);
+			if (expected) {
+				intersecting++;
+			}
+			if (expected != actual) {
+				mismatches++;
+				if (mismatches <= 10) {
+					System.out.println(String.format(
+							"mismatch: jts=%b sat=%b %s %s", expected, actual,
+							toString(box1), toString(box2)));
+				}
+			}
+		}
+
+		System.out.println(String.format(
+				"%d pairs, %d intersecting, %d mismatches", PAIRS,
+				intersecting, mismatches));
+
+		benchmark(random);
+
+		if (mismatches > 0) {
+			System.exit(1);
+		}
+	}
+
+	private static void benchmark(Random random)
+	{
+		int n = 100000;
+		float[][] boxes = new float[n][];
+		for (int i = 0; i < n; i++) {
+			boxes[i] = randomBox(random);
+		}
+
+		for (int run = 0; run < 3; run++) {
+			int count = 0;
+			long start = System.nanoTime();
+			for (int i = 1; i < n; i++) {
+				if (GeneralRectangle.intersects(boxes[i - 1], boxes[i])) {
+					count++;
+				}
+			}
+			long jts = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 1; i < n; i++) {
+				if (GeneralRectangle.intersectsSat(boxes[i - 1], boxes[i])) {
+					count--;
+				}
+			}
+			long sat = System.nanoTime() - start;
+
+			System.out.println(String.format(
+					"jts: %.1f ns per test, sat: %.1f ns per test (%d)",
+					jts / (double) n, sat / (double) n, count));
+		}
+	}
+
+	/*
+	 * A rectangle with random position, size and orientation, with its
+	 * corners in random winding order.
+	 */
+	private static float[] randomBox(Random random)
+	{
+		double cx = random.nextDouble() * 100;
+		double cy = random.nextDouble() * 100;
+		double w = 1 + random.nextDouble() * 30;
+		double h = 1 + random.nextDouble() * 10;
+		double angle = random.nextDouble() * 2 * Math.PI;
+		double cos = Math.cos(angle);
+		double sin = Math.sin(angle);
+
+		double[][] corners = { { -w / 2, -h / 2 }, { w / 2, -h / 2 },
+				{ w / 2, h / 2 }, { -w / 2, h / 2 } };
+		boolean reverse = random.nextBoolean();
+		float[] box = new float[8];
+		for (int i = 0; i < 4; i++) {
+			double[] corner = corners[reverse ? 3 - i : i];
+			box[i * 2] = (float) (cx + corner[0] * cos - corner[1] * sin);
+			box[i * 2 + 1] = (float) (cy + corner[0] * sin + corner[1] * cos);
+		}
+		return box;
+	}
+
+	private static float[] randomGridBox(Random random)
+	{
+		int x1 = random.nextInt(10);
+		int y1 = random.nextInt(10);
+		int x2 = x1 + 1 + random.nextInt(5);
+		int y2 = y1 + 1 + random.nextInt(5);
+		return new float[] { x1, y1, x2, y1, x2, y2, x1, y2 };
+	}
+
+	private static String toString(float[] box)
+	{
+		StringBuilder buffer = new StringBuilder("[");
+		for (int i = 0; i < box.length; i++) {
+			if (i > 0) {
+				buffer.append(", ");
+			}
+			buffer.append(box[i]);
+		}
+		buffer.append("]");
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,74 @@
+// Copyright 2026 Sebastian Kuerten
+//
+// This file is part of osmocrat.
+//
+// osmocrat is free software: you can redistribute it and/or modify
+// it under the terms of the GNU Lesser General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// osmocrat is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public License
+// along with osmocrat. If not, see <http://www.gnu.org/licenses/>.
+
+package de.topobyte.osmocrat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import de.topobyte.adt.geo.BBox;
+import de.topobyte.osm4j.core.access.OsmInputException;
+import de.topobyte.osm4j.core.access.OsmReader;
+import de.topobyte.osm4j.core.dataset.InMemoryListDataSet;
+import de.topobyte.osm4j.core.dataset.ListDataSetLoader;
+import de.topobyte.osm4j.xml.dynsax.OsmXmlReader;
+import de.topobyte.osmocrat.rendering.ConfigMapRenderer;
+import de.topobyte.osmocrat.rendering.IndexedRenderingData;
+import de.topobyte.osmocrat.rendering.config.RenderInstructions;
+import de.topobyte.osmocrat.rendering.config.Rendering;
+import de.topobyte.osmocrat.rendering.tiles.DirectoryTileOutput;
+import de.topobyte.osmocrat.rendering.tiles.TileRenderer;
+import de.topobyte.overpass.OverpassUtil;
+
+public class TestTileRendering
+{
+
+	public static void main(String[] args) throws IOException, OsmInputException
+	{
+		// This is the region we would like to render
+		BBox bbox = new BBox(13.45546, 52.51229, 13.46642, 52.50761);
+
+		OverpassUtil.cache(bbox);
+		Path cacheFile = OverpassUtil.cacheFile(bbox);
+		InputStream input = Files.newInputStream(cacheFile);
+
+		// Create a reader and read all data into a data set
+		OsmReader reader = new OsmXmlReader(input, false);
+		InMemoryListDataSet data = ListDataSetLoader.read(reader, true, true,
+				true);
+
+		RenderInstructions instructions = Rendering.style2();
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		IndexedRenderingData renderingData = ConfigMapRenderer
+				.buildIndexedRenderingData(data, null, instructions, threads,
+						true);
+
+		Path directory = Files.createTempDirectory("tiles");
+		System.out.println(directory);
+
+		TileRenderer renderer = new TileRenderer(renderingData, instructions);
+		renderer.setThreads(threads);
+		renderer.setMetaTileSize(8);
+		try (DirectoryTileOutput output = new DirectoryTileOutput(directory)) {
+			renderer.render(bbox, 14, 18, output);
+		}
+	}
+
+}